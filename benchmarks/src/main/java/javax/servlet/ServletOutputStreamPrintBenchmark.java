@@ -0,0 +1,241 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package javax.servlet;
+
+import java.io.CharConversionException;
+import java.io.IOException;
+import java.text.MessageFormat;
+import java.util.ResourceBundle;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link ServletOutputStream}の<code>print</code>メソッドと、1文字ごとに{@link ServletOutputStream#write(int)}を呼び出す以前の実装を比較します。
+ *
+ * <p>スループットに加えて、1秒あたりに書き込まれたバイト数を<code>bytes</code>として報告します。
+ * 出力先はコンテナのバッファを模した64KBの配列で、書き込まれたバイトはすべてコピーされます。
+ *
+ * @since Servlet 4.0.1
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ServletOutputStreamPrintBenchmark {
+
+    private static final ResourceBundle lStrings =
+        ResourceBundle.getBundle("javax.servlet.LocalStrings");
+
+    /**
+     * <code>print(String)</code>に渡す文字列の長さです。
+     */
+    @Param({ "16", "1024" })
+    public int length;
+
+    private String text;
+    private final Sink out = new Sink();
+
+    /**
+     * 書き込まれたバイト数です。
+     *
+     * @since Servlet 4.0.1
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Bytes {
+
+        /**
+         * 測定の間に書き込まれたバイト数です。
+         */
+        public long bytes;
+
+        /**
+         * 繰り返しごとにカウンターを0に戻します。
+         */
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+    }
+
+    /**
+     * ISO-8859-1の範囲の文字からなる文字列を生成します。
+     */
+    @Setup
+    public void setUp() {
+        char[] chars = new char[length];
+        String source = "<td class=\"name\">Café &amp; Résumé</td>\n";
+        for (int i = 0; i < length; i++) {
+            chars[i] = source.charAt(i % source.length());
+        }
+        text = new String(chars);
+    }
+
+    /**
+     * 現在の{@link ServletOutputStream#print(String)}で書き込みます。
+     *
+     * @param counter 書き込まれたバイト数
+     *
+     * @throws IOException 書き込みに失敗した場合
+     */
+    @Benchmark
+    public void printString(Bytes counter) throws IOException {
+        long start = out.count;
+        out.print(text);
+        counter.bytes += out.count - start;
+    }
+
+    /**
+     * 以前の<code>print(String)</code>で書き込みます。
+     *
+     * @param counter 書き込まれたバイト数
+     *
+     * @throws IOException 書き込みに失敗した場合
+     */
+    @Benchmark
+    public void legacyPrintString(Bytes counter) throws IOException {
+        long start = out.count;
+        legacyPrint(out, text);
+        counter.bytes += out.count - start;
+    }
+
+    /**
+     * 現在の{@link ServletOutputStream#print(long)}で書き込みます。
+     *
+     * @param counter 書き込まれたバイト数
+     *
+     * @throws IOException 書き込みに失敗した場合
+     */
+    @Benchmark
+    public void printLong(Bytes counter) throws IOException {
+        long start = out.count;
+        out.print(out.count * 1000003L);
+        counter.bytes += out.count - start;
+    }
+
+    /**
+     * 以前の<code>print(long)</code>、つまり<code>print(String.valueOf(l))</code>で書き込みます。
+     *
+     * @param counter 書き込まれたバイト数
+     *
+     * @throws IOException 書き込みに失敗した場合
+     */
+    @Benchmark
+    public void legacyPrintLong(Bytes counter) throws IOException {
+        long start = out.count;
+        legacyPrint(out, String.valueOf(out.count * 1000003L));
+        counter.bytes += out.count - start;
+    }
+
+    /*
+     * ServletOutputStream.print(String) before the change.
+     */
+    private static void legacyPrint(ServletOutputStream out, String s) throws IOException {
+        if (s==null) s="null";
+        int len = s.length();
+        for (int i = 0; i < len; i++) {
+            char c = s.charAt (i);
+            if ((c & 0xff00) != 0) {        // high order byte must be zero
+                String errMsg = lStrings.getString("err.not_iso8859_1");
+                Object[] errArgs = new Object[1];
+                errArgs[0] = Character.valueOf(c);
+                errMsg = MessageFormat.format(errMsg, errArgs);
+                throw new CharConversionException(errMsg);
+            }
+            out.write (c);
+        }
+    }
+
+    /*
+     * Copies everything into a 64 KB ring, like a container's output
+     * buffer that is flushed elsewhere.
+     */
+    static final class Sink extends ServletOutputStream {
+
+        private final byte[] buffer = new byte[1 << 16];
+        private int pos;
+        long count;
+
+        @Override
+        public void write(int b) {
+            if (pos == buffer.length) {
+                pos = 0;
+            }
+            buffer[pos++] = (byte) b;
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            if (len > buffer.length - pos) {
+                pos = 0;
+            }
+            System.arraycopy(b, off, buffer, pos, len);
+            pos += len;
+            count += len;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
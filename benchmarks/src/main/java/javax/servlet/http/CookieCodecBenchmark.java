@@ -0,0 +1,168 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package javax.servlet.http;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link CookieCodec}の解析と書き出しを測定します。
+ *
+ * <p>解析の入力は、解析用やA/Bテスト用のクッキーを多数含む約4KBの<code>Cookie</code>ヘッダです。
+ * 比較のため、コンテナでよく見られる正規表現で分割する解析も測定します。
+ * 遅延解析の測定では、セッションIDのクッキーだけを取り出します。
+ *
+ * @since Servlet 4.0.1
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CookieCodecBenchmark {
+
+    private static final Pattern SEMICOLON = Pattern.compile("\\s*;\\s*");
+    private static final Pattern EQUALS = Pattern.compile("\\s*=\\s*");
+
+    private String header;
+    private Cookie cookie;
+    private final StringBuilder sb = new StringBuilder(256);
+    private final ByteBuffer buffer = ByteBuffer.allocate(256);
+
+    /**
+     * ヘッダと書き出すクッキーを生成します。
+     */
+    @Setup
+    public void setUp() {
+        StringBuilder h = new StringBuilder();
+        for (int i = 0; h.length() < 4000; i++) {
+            h.append("_ga_").append(Integer.toHexString(0x5A3C0 + i))
+                .append("=GS1.1.1539820000.").append(i)
+                .append(".1.1539821234.0.0.0; ")
+                .append("ab_test_").append(i).append("=variant-")
+                .append((char) ('a' + i % 3)).append("; ");
+            if (i == 12) {
+                h.append("JSESSIONID=8C2F6E0A1B9D47E3A5F01C2D3E4B5A69.node1; ");
+            }
+        }
+        h.append("csrftoken=QmFzZTY0RW5jb2RlZFRva2VuVmFsdWUxMjM0NTY3ODkw");
+        header = h.toString();
+
+        cookie = new Cookie("JSESSIONID", "8C2F6E0A1B9D47E3A5F01C2D3E4B5A69.node1");
+        cookie.setPath("/shop");
+        cookie.setMaxAge(1800);
+        cookie.setSecure(true);
+        cookie.setHttpOnly(true);
+    }
+
+    /**
+     * {@link CookieCodec#parse}ですべてのクッキーを解析します。
+     *
+     * @return 解析されたクッキー
+     */
+    @Benchmark
+    public Cookie[] parse() {
+        return CookieCodec.parse(header);
+    }
+
+    /**
+     * {@link CookieCodec#parseLazily}で解析し、1つのクッキーの値だけを取り出します。
+     *
+     * @return セッションIDの値
+     */
+    @Benchmark
+    public String parseLazily() {
+        return CookieCodec.parseLazily(header).getValue("JSESSIONID");
+    }
+
+    /**
+     * 正規表現で分割してすべてのクッキーを解析します。
+     *
+     * @return 解析されたクッキー
+     */
+    @Benchmark
+    public Cookie[] split() {
+        String[] pairs = SEMICOLON.split(header);
+        List<Cookie> cookies = new ArrayList<>(pairs.length);
+        for (String pair : pairs) {
+            String[] nv = EQUALS.split(pair, 2);
+            cookies.add(new Cookie(nv[0], nv.length > 1 ? nv[1] : ""));
+        }
+        return cookies.toArray(new Cookie[cookies.size()]);
+    }
+
+    /**
+     * {@link CookieCodec#format(Cookie, StringBuilder)}で<code>Set-Cookie</code>ヘッダの値を書き出します。
+     *
+     * @return 書き出された文字数
+     */
+    @Benchmark
+    public int formatStringBuilder() {
+        sb.setLength(0);
+        return CookieCodec.format(cookie, sb).length();
+    }
+
+    /**
+     * {@link CookieCodec#format(Cookie, ByteBuffer)}で<code>Set-Cookie</code>ヘッダの値を書き出します。
+     *
+     * @return 書き出されたバイト数
+     */
+    @Benchmark
+    public int formatByteBuffer() {
+        buffer.clear();
+        return CookieCodec.format(cookie, buffer).position();
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package javax.servlet.http;
+
+import java.io.IOException;
+import java.text.MessageFormat;
+import java.util.ResourceBundle;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link HttpServlet#service(HttpServletRequest, HttpServletResponse)}のディスパッチ表と、
+ * 以前の<code>String.equals</code>の連鎖によるディスパッチを比較します。
+ *
+ * <p>よく使われるメソッド(<code>GET</code>)、連鎖の後ろにある標準のメソッド(<code>DELETE</code>)、
+ * {@link HttpServlet#addMethodHandler}で登録した拡張メソッド(<code>PATCH</code>)、
+ * どこにも登録されていないメソッド(<code>PROPFIND</code>)のそれぞれを測定します。
+ * 連鎖の側では、拡張メソッドは従来どおり<code>service</code>をオーバーライドして処理します。
+ *
+ * @since Servlet 4.0.1
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HttpServletDispatchBenchmark {
+
+    /**
+     * リクエストのHTTPメソッドです。
+     */
+    @Param({ "GET", "DELETE", "PATCH", "PROPFIND" })
+    public String method;
+
+    private HttpServletRequest request;
+    private StubResponse response;
+    private TableServlet table;
+    private ChainServlet chain;
+
+    /**
+     * サーブレットとリクエストを生成します。
+     */
+    @Setup
+    public void setUp() {
+        request = new StubRequest(method, "/");
+        response = new StubResponse();
+        table = new TableServlet();
+        chain = new ChainServlet();
+    }
+
+    /**
+     * ディスパッチ表でディスパッチします。
+     *
+     * @return 呼び出されたハンドラの数
+     *
+     * @throws ServletException サーブレットが例外をスローした場合
+     * @throws IOException サーブレットが例外をスローした場合
+     */
+    @Benchmark
+    public int table() throws ServletException, IOException {
+        table.service(request, response);
+        return table.calls;
+    }
+
+    /**
+     * <code>String.equals</code>の連鎖でディスパッチします。
+     *
+     * @return 呼び出されたハンドラの数
+     *
+     * @throws ServletException サーブレットが例外をスローした場合
+     * @throws IOException サーブレットが例外をスローした場合
+     */
+    @Benchmark
+    public int chain() throws ServletException, IOException {
+        chain.service(request, response);
+        return chain.calls;
+    }
+
+    /*
+     * Handles GET, POST and DELETE, and PATCH through a registered handler.
+     */
+    @SuppressWarnings("serial")
+    static class TableServlet extends HttpServlet {
+
+        int calls;
+
+        TableServlet() {
+            addMethodHandler("PATCH", new HttpMethodHandler() {
+                @Override
+                public void handle(HttpServletRequest req, HttpServletResponse resp) {
+                    calls++;
+                }
+            });
+        }
+
+        @Override
+        protected void doGet(HttpServletRequest req, HttpServletResponse resp) {
+            calls++;
+        }
+
+        @Override
+        protected void doPost(HttpServletRequest req, HttpServletResponse resp) {
+            calls++;
+        }
+
+        @Override
+        protected void doDelete(HttpServletRequest req, HttpServletResponse resp) {
+            calls++;
+        }
+    }
+
+    /*
+     * The same servlet written against the previous service method: the
+     * equals chain, with PATCH handled by overriding service.
+     */
+    @SuppressWarnings("serial")
+    static final class ChainServlet extends TableServlet {
+
+        private static final ResourceBundle lStrings =
+            ResourceBundle.getBundle("javax.servlet.http.LocalStrings");
+
+        @Override
+        protected void service(HttpServletRequest req, HttpServletResponse resp)
+            throws ServletException, IOException
+        {
+            String method = req.getMethod();
+
+            if (method.equals("GET")) {
+                long lastModified = getLastModified(req);
+                if (lastModified == -1) {
+                    doGet(req, resp);
+                } else {
+                    long ifModifiedSince = req.getDateHeader("If-Modified-Since");
+                    if (ifModifiedSince < lastModified) {
+                        doGet(req, resp);
+                    } else {
+                        resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                    }
+                }
+            } else if (method.equals("HEAD")) {
+                doHead(req, resp);
+            } else if (method.equals("POST")) {
+                doPost(req, resp);
+            } else if (method.equals("PUT")) {
+                doPut(req, resp);
+            } else if (method.equals("DELETE")) {
+                doDelete(req, resp);
+            } else if (method.equals("OPTIONS")) {
+                doOptions(req, resp);
+            } else if (method.equals("TRACE")) {
+                doTrace(req, resp);
+            } else if (method.equals("PATCH")) {
+                calls++;
+            } else {
+                String errMsg = lStrings.getString("http.method_not_implemented");
+                Object[] errArgs = new Object[1];
+                errArgs[0] = method;
+                errMsg = MessageFormat.format(errMsg, errArgs);
+                resp.sendError(HttpServletResponse.SC_NOT_IMPLEMENTED, errMsg);
+            }
+        }
+    }
+}
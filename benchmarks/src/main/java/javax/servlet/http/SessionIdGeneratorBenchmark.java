@@ -0,0 +1,144 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package javax.servlet.http;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 多数のスレッドが同時にセッションIDを生成する場合の{@link StripedSessionIdGenerator}のスループットを、
+ * 1つの<code>SecureRandom</code>を共有する従来の生成方法と比較します。
+ *
+ * <p>スレッドの数は既定で16です。JMHの<code>-t</code>オプションで変更できます。
+ * たとえば<code>java -jar target/benchmarks.jar SessionIdGeneratorBenchmark -t 1</code>で競合のない場合を測定します。
+ *
+ * @since Servlet 4.0.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(16)
+public class SessionIdGeneratorBenchmark {
+
+    /* Same entropy as the default StripedSessionIdGenerator. */
+    private static final int ID_BYTES = 18;
+
+    /**
+     * 測定するジェネレーターです。
+     * <code>striped</code>は{@link StripedSessionIdGenerator}、<code>synchronized</code>は共有された<code>SecureRandom</code>です。
+     */
+    @Param({ "striped", "synchronized" })
+    public String generator;
+
+    private SessionIdGenerator ids;
+
+    /**
+     * ジェネレーターを生成します。
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        if (generator.equals("striped")) {
+            ids = new StripedSessionIdGenerator();
+        } else {
+            ids = new SynchronizedSessionIdGenerator();
+        }
+    }
+
+    /**
+     * ジェネレーターを閉じます。
+     *
+     * @throws Exception ジェネレーターを閉じられなかった場合
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (ids instanceof AutoCloseable) {
+            ((AutoCloseable) ids).close();
+        }
+    }
+
+    /**
+     * セッションIDを1つ生成します。
+     *
+     * @return 生成されたセッションID
+     */
+    @Benchmark
+    public String generateSessionId() {
+        return ids.generateSessionId();
+    }
+
+    /*
+     * The usual container generator: every thread draws from one
+     * SecureRandom under its monitor.
+     */
+    private static final class SynchronizedSessionIdGenerator implements SessionIdGenerator {
+
+        private final SecureRandom random = new SecureRandom();
+        private final Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+
+        @Override
+        public String generateSessionId() {
+            byte[] bytes = new byte[ID_BYTES];
+            synchronized (random) {
+                random.nextBytes(bytes);
+            }
+            return encoder.encodeToString(bytes);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package javax.servlet.http;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * ベンチマークで使用する最小限の{@link HttpServletRequest}です。
+ *
+ * <p>メソッド、URI、ヘッダーだけを保持し、それ以外のメソッドは<code>UnsupportedOperationException</code>をスローします。
+ * ラッパーとして実装しているため、これを包むラッパーの呼び出しは{@link HttpServletRequestWrapper}の委譲の規則に従ってこのクラスに届きます。
+ *
+ * @since Servlet 4.0.1
+ */
+public class StubRequest extends HttpServletRequestWrapper {
+
+    private final String method;
+    private final String requestURI;
+    private final Map<String, String> headers = new HashMap<>();
+
+    /**
+     * 指定したメソッドとURIを持つリクエストを生成します。
+     *
+     * @param method HTTPメソッド
+     * @param requestURI リクエストURI
+     */
+    public StubRequest(String method, String requestURI) {
+        super(unsupported(HttpServletRequest.class));
+        this.method = method;
+        this.requestURI = requestURI;
+    }
+
+    /**
+     * ヘッダーを設定します。
+     *
+     * @param name ヘッダーの名前
+     * @param value ヘッダーの値
+     *
+     * @return このリクエスト
+     */
+    public StubRequest header(String name, String value) {
+        headers.put(name, value);
+        return this;
+    }
+
+    @Override
+    public String getMethod() {
+        return method;
+    }
+
+    @Override
+    public String getRequestURI() {
+        return requestURI;
+    }
+
+    @Override
+    public String getHeader(String name) {
+        return headers.get(name);
+    }
+
+    /*
+     * A proxy for the methods a benchmark never calls.
+     */
+    static <T> T unsupported(Class<T> type) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(),
+            new Class<?>[] { type }, new InvocationHandler() {
+                @Override
+                public Object invoke(Object proxy, Method m, Object[] args) {
+                    throw new UnsupportedOperationException(m.getName());
+                }
+            }));
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package javax.servlet.http;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link UrlEncodedParser}と、以前の{@link HttpUtils#parseQueryString}を比較します。
+ *
+ * <p>短いクエリ文字列(<code>short</code>)と、UTF-8の<i>%xx</i>表記や繰り返されるキーを含む約1KBのフォームのデータ(<code>long</code>)を解析します。
+ * <code>Map</code>を作る解析に加えて、{@link UrlEncodedParser.Visitor}で1つのパラメータだけを探す場合も測定します。
+ *
+ * @since Servlet 4.0.1
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UrlEncodedParserBenchmark {
+
+    private static final String SHORT = "q=servlet&page=2&lang=ja";
+
+    /**
+     * 解析する入力の種類です。
+     */
+    @Param({ "short", "long" })
+    public String kind;
+
+    private String query;
+    private byte[] bytes;
+    private String target;
+
+    /**
+     * 入力を生成します。
+     */
+    @Setup
+    public void setUp() {
+        if (kind.equals("short")) {
+            query = SHORT;
+            target = "lang";
+        } else {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; sb.length() < 1024; i++) {
+                sb.append("tag=%E3%82%B5%E3%83%BC%E3%83%96%E3%83%AC%E3%83%83%E3%83%88")
+                    .append("&item").append(i).append("=value+").append(i)
+                    .append("&title=Caf%C3%A9+%26+R%C3%A9sum%C3%A9&");
+            }
+            sb.append("token=0123456789abcdef");
+            query = sb.toString();
+            target = "token";
+        }
+        bytes = query.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * {@link HttpUtils#parseQueryString}で解析します。
+     *
+     * @return 解析の結果
+     */
+    @Benchmark
+    @SuppressWarnings("deprecation")
+    public Hashtable<String, String[]> legacy() {
+        return HttpUtils.parseQueryString(query);
+    }
+
+    /**
+     * 文字列を{@link UrlEncodedParser#parse(CharSequence, java.nio.charset.Charset)}で解析します。
+     *
+     * @return 解析の結果
+     */
+    @Benchmark
+    public Map<String, List<String>> parse() {
+        return UrlEncodedParser.parse(query, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * バイト列を{@link UrlEncodedParser#parse(byte[], int, int, java.nio.charset.Charset)}で解析します。
+     *
+     * @return 解析の結果
+     */
+    @Benchmark
+    public Map<String, List<String>> parseBytes() {
+        return UrlEncodedParser.parse(bytes, 0, bytes.length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * {@link UrlEncodedParser.Visitor}で1つのパラメータだけを探します。
+     *
+     * @return 見つかった値
+     */
+    @Benchmark
+    public String visit() {
+        final String[] value = new String[1];
+        UrlEncodedParser.parse(query, StandardCharsets.UTF_8, new UrlEncodedParser.Visitor() {
+            @Override
+            public boolean visit(UrlEncodedParser.Parameter parameter) {
+                if (parameter.nameEquals(target)) {
+                    value[0] = parameter.getValue();
+                    return false;
+                }
+                return true;
+            }
+        });
+        return value[0];
+    }
+}
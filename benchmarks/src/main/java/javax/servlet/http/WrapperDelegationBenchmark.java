@@ -0,0 +1,222 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package javax.servlet.http;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 深さの異なる{@link HttpServletRequestWrapper}と{@link HttpServletResponseWrapper}の連鎖を通した呼び出しの費用を測定します。
+ *
+ * <p><code>plain</code>の連鎖はメソッドをオーバーライドしないラッパーだけからなり、呼び出しは最も内側のオブジェクトに直接届きます。
+ * <code>overriding</code>の連鎖では各層が<code>super</code>を呼び出すだけのオーバーライドを持つため、
+ * 以前の実装と同じく層ごとに1回ずつ委譲されます。
+ *
+ * @since Servlet 4.0.1
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WrapperDelegationBenchmark {
+
+    /**
+     * 最も内側のオブジェクトを包むラッパーの数です。
+     */
+    @Param({ "1", "2", "4", "8", "16" })
+    public int depth;
+
+    /**
+     * ラッパーの種類です。
+     */
+    @Param({ "plain", "overriding" })
+    public String kind;
+
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+
+    /**
+     * ラッパーの連鎖を生成します。
+     */
+    @Setup
+    public void setUp() {
+        HttpServletRequest req = new StubRequest("GET", "/index.html")
+            .header("Accept", "text/html");
+        HttpServletResponse resp = new StubResponse();
+        boolean overriding = kind.equals("overriding");
+        for (int i = 0; i < depth; i++) {
+            // Alternate classes so that the call sites see several types.
+            if (overriding) {
+                req = (i % 2 == 0) ? new OverridingRequest(req) : new OverridingRequest2(req);
+                resp = (i % 2 == 0) ? new OverridingResponse(resp) : new OverridingResponse2(resp);
+            } else {
+                req = (i % 2 == 0) ? new PlainRequest(req) : new PlainRequest2(req);
+                resp = (i % 2 == 0) ? new PlainResponse(resp) : new PlainResponse2(resp);
+            }
+        }
+        request = req;
+        response = resp;
+        // Build the delegation state outside the measurement.
+        request.getHeader("Accept");
+        response.getStatus();
+    }
+
+    /**
+     * {@link HttpServletRequest#getHeader}を呼び出します。
+     *
+     * @return ヘッダーの値
+     */
+    @Benchmark
+    public String getHeader() {
+        return request.getHeader("Accept");
+    }
+
+    /**
+     * {@link HttpServletRequest#getMethod}を呼び出します。
+     *
+     * @return HTTPメソッド
+     */
+    @Benchmark
+    public String getMethod() {
+        return request.getMethod();
+    }
+
+    /**
+     * {@link HttpServletRequest#getRequestURI}を呼び出します。
+     *
+     * @return リクエストURI
+     */
+    @Benchmark
+    public String getRequestURI() {
+        return request.getRequestURI();
+    }
+
+    /**
+     * {@link HttpServletResponse#getStatus}を呼び出します。
+     *
+     * @return ステータスコード
+     */
+    @Benchmark
+    public int getStatus() {
+        return response.getStatus();
+    }
+
+    static class PlainRequest extends HttpServletRequestWrapper {
+        PlainRequest(HttpServletRequest request) {
+            super(request);
+        }
+    }
+
+    static final class PlainRequest2 extends PlainRequest {
+        PlainRequest2(HttpServletRequest request) {
+            super(request);
+        }
+    }
+
+    static class OverridingRequest extends HttpServletRequestWrapper {
+        OverridingRequest(HttpServletRequest request) {
+            super(request);
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return super.getHeader(name);
+        }
+
+        @Override
+        public String getMethod() {
+            return super.getMethod();
+        }
+
+        @Override
+        public String getRequestURI() {
+            return super.getRequestURI();
+        }
+    }
+
+    static final class OverridingRequest2 extends OverridingRequest {
+        OverridingRequest2(HttpServletRequest request) {
+            super(request);
+        }
+    }
+
+    static class PlainResponse extends HttpServletResponseWrapper {
+        PlainResponse(HttpServletResponse response) {
+            super(response);
+        }
+    }
+
+    static final class PlainResponse2 extends PlainResponse {
+        PlainResponse2(HttpServletResponse response) {
+            super(response);
+        }
+    }
+
+    static class OverridingResponse extends HttpServletResponseWrapper {
+        OverridingResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public int getStatus() {
+            return super.getStatus();
+        }
+    }
+
+    static final class OverridingResponse2 extends OverridingResponse {
+        OverridingResponse2(HttpServletResponse response) {
+            super(response);
+        }
+    }
+}
@@ -0,0 +1,359 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package javax.servlet;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.text.MessageFormat;
+import java.util.ResourceBundle;
+
+/**
+ * 別の<code>ServletInputStream</code>から読み込んだデータを内部のバッファに保持し、
+ * {@link #readLine(byte[], int, int)}などの行単位の読み込みをバッファに対する一括の走査で行う<code>ServletInputStream</code>です。
+ *
+ * <p>{@link ServletInputStream#readLine(byte[], int, int)}のデフォルトの実装は改行文字を見つけるまで1バイトごとに<code>read()</code>を呼び出しますが、
+ * このクラスはラップしたストリームからバッファ単位でまとめて読み込み、改行文字をバッファ内で8バイト単位で探します。
+ * マルチパートのパーサーのように行単位のプロトコルを処理する場合に適しています。
+ *
+ * <p>このクラスはラップしたストリームから先読みを行います。
+ * そのため一度ラップした後はラップしたストリームから直接読み込まず、常にこのオブジェクトから読み込む必要があります。
+ *
+ * <p>{@link ReadListener}を使用する場合は、通常の<code>ServletInputStream</code>と同じように{@link #isReady()}が<code>true</code>を返す間は読み込みを続けてください。
+ * バッファにデータが残っている間は{@link #isReady()}は<code>true</code>を返します。
+ *
+ * @see ServletInputStream#readLine(byte[], int, int)
+ *
+ * @since Servlet 4.0.1
+ */
+public class BufferedServletInputStream extends ServletInputStream {
+
+    private static final String LSTRING_FILE = "javax.servlet.LocalStrings";
+    private static ResourceBundle lStrings =
+        ResourceBundle.getBundle(LSTRING_FILE);
+
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGHS = 0x8080808080808080L;
+    private static final long NEWLINES = ONES * '\n';
+
+    private final ServletInputStream in;
+    private final byte[] buf;
+    // little endian view of buf used to scan eight bytes at a time
+    private final ByteBuffer words;
+    private int pos;
+    private int limit;
+
+
+    /**
+     * デフォルトのサイズのバッファを持ち、指定したストリームから読み込む<code>BufferedServletInputStream</code>を作成します。
+     *
+     * @param in ラップする<code>ServletInputStream</code>
+     *
+     * @throws IllegalArgumentException <code>in</code>がnullの場合
+     */
+    public BufferedServletInputStream(ServletInputStream in) {
+        this(in, DEFAULT_BUFFER_SIZE);
+    }
+
+
+    /**
+     * 指定したサイズのバッファを持ち、指定したストリームから読み込む<code>BufferedServletInputStream</code>を作成します。
+     *
+     * @param in ラップする<code>ServletInputStream</code>
+     *
+     * @param size バッファのサイズ
+     *
+     * @throws IllegalArgumentException <code>in</code>がnullであるか、<code>size</code>が0以下の場合
+     */
+    public BufferedServletInputStream(ServletInputStream in, int size) {
+        if (in == null) {
+            throw new IllegalArgumentException(
+                lStrings.getString("err.stream_null"));
+        }
+        if (size <= 0) {
+            throw new IllegalArgumentException(MessageFormat.format(
+                lStrings.getString("err.buffer_size"), size));
+        }
+        this.in = in;
+        this.buf = new byte[size];
+        this.words = ByteBuffer.wrap(buf).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+
+    /*
+     * Refills the empty buffer from the wrapped stream. Returns the number
+     * of bytes now available, 0 if none could be read without blocking,
+     * or -1 at the end of the stream.
+     */
+    private int fill() throws IOException {
+        pos = 0;
+        limit = 0;
+        int n = in.read(buf, 0, buf.length);
+        if (n > 0) {
+            limit = n;
+        }
+        return n;
+    }
+
+
+    /*
+     * Returns the index of the first '\n' in buf[from, to), or -1. Eight
+     * bytes are tested at once with the usual "has zero byte" trick; the
+     * lowest flagged byte is always a genuine match.
+     */
+    private int indexOfNewline(int from, int to) {
+        int i = from;
+        for (; i + 8 <= to; i += 8) {
+            long v = words.getLong(i) ^ NEWLINES;
+            long found = (v - ONES) & ~v & HIGHS;
+            if (found != 0) {
+                return i + (Long.numberOfTrailingZeros(found) >>> 3);
+            }
+        }
+        for (; i < to; i++) {
+            if (buf[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+
+    @Override
+    public int read() throws IOException {
+        if (pos >= limit) {
+            int n = fill();
+            if (n < 0) {
+                return -1;
+            } else if (n == 0) {
+                // nothing available yet; a single byte cannot report that,
+                // so leave it to the wrapped stream to block or fail
+                return in.read();
+            }
+        }
+        return buf[pos++] & 0xff;
+    }
+
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len == 0) {
+            return 0;
+        }
+        int available = limit - pos;
+        if (available <= 0) {
+            if (len >= buf.length) {
+                // nothing to gain from copying through the buffer
+                return in.read(b, off, len);
+            }
+            int n = fill();
+            if (n <= 0) {
+                return n;
+            }
+            available = n;
+        }
+        int n = Math.min(available, len);
+        System.arraycopy(buf, pos, b, off, n);
+        pos += n;
+        return n;
+    }
+
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        int len = dst.remaining();
+        if (len <= 0) {
+            return 0;
+        }
+        if (pos >= limit) {
+            if (len >= buf.length) {
+                // nothing to gain from copying through the buffer
+                return in.read(dst);
+            }
+            int n = fill();
+            if (n <= 0) {
+                return n;
+            }
+        }
+        int n = Math.min(limit - pos, len);
+        dst.put(buf, pos, n);
+        pos += n;
+        return n;
+    }
+
+
+    /**
+     * 入力ストリームを一度に1行読み込みます。
+     * オフセットから始めて一定のバイト数を読むか、改行文字に到達するまで配列にバイトを読み込みます。
+     *
+     * <p>このメソッドは最大バイト数を読み取る前に入力ストリームの終端に達した場合は-1を返します。
+     * 結果は{@link ServletInputStream#readLine(byte[], int, int)}と同じですが、改行文字はバッファの中からまとめて探されます。
+     *
+     * @param b 		データが読み込まれるバイトの配列
+     *
+     * @param off 		このメソッドが読み込みを開始する文字を指定する整数
+     *
+     * @param len		読み込む最大バイト数を指定する整数
+     *
+     * @return			読み込まれた実際のバイト数を示す整数、ストリームの終端に達した場合は-1
+     *
+     * @exception IOException	I/O例外が発生した
+     */
+    @Override
+    public int readLine(byte[] b, int off, int len) throws IOException {
+        if (len <= 0) {
+            return 0;
+        }
+        int count = 0;
+        while (count < len) {
+            if (pos >= limit) {
+                int n = fill();
+                if (n < 0) {
+                    break;
+                } else if (n == 0) {
+                    return count;
+                }
+            }
+            int end = Math.min(limit, pos + (len - count));
+            int nl = indexOfNewline(pos, end);
+            int n = ((nl >= 0) ? nl + 1 : end) - pos;
+            System.arraycopy(buf, pos, b, off + count, n);
+            pos += n;
+            count += n;
+            if (nl >= 0) {
+                break;
+            }
+        }
+        return count > 0 ? count : -1;
+    }
+
+
+    /**
+     * 入力ストリームを一度に1行読み込み、指定した<code>ByteBuffer</code>に格納します。
+     * 内部のバッファから<code>dst</code>に直接コピーし、中間のバッファを使用しません。
+     *
+     * @param dst 		データが読み込まれる<code>ByteBuffer</code>
+     *
+     * @return			読み込まれた実際のバイト数を示す整数、ストリームの終端に達した場合は-1
+     *
+     * @exception IOException	I/O例外が発生した
+     *
+     * @see ServletInputStream#readLine(ByteBuffer)
+     */
+    @Override
+    public int readLine(ByteBuffer dst) throws IOException {
+        int len = dst.remaining();
+        if (len <= 0) {
+            return 0;
+        }
+        int count = 0;
+        while (count < len) {
+            if (pos >= limit) {
+                int n = fill();
+                if (n < 0) {
+                    break;
+                } else if (n == 0) {
+                    return count;
+                }
+            }
+            int end = Math.min(limit, pos + (len - count));
+            int nl = indexOfNewline(pos, end);
+            int n = ((nl >= 0) ? nl + 1 : end) - pos;
+            dst.put(buf, pos, n);
+            pos += n;
+            count += n;
+            if (nl >= 0) {
+                break;
+            }
+        }
+        return count > 0 ? count : -1;
+    }
+
+
+    @Override
+    public int available() throws IOException {
+        return (limit - pos) + in.available();
+    }
+
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+
+    /**
+     * バッファにデータが残っておらず、ラップしたストリームのすべてのデータが読み取られた場合はtrueを返します。
+     *
+     * @return すべてのデータが読み取られた場合は<code>true</code>、そうでない場合は<code>false</code>
+     */
+    @Override
+    public boolean isFinished() {
+        return pos >= limit && in.isFinished();
+    }
+
+
+    /**
+     * バッファにデータが残っているか、ラップしたストリームからブロッキングせずにデータを読み込むことができるときに<code>true</code>を返します。
+     *
+     * @return ブロッキングせずにデータを得ることができるときに<code>true</code>、そうでない場合は<code>false</code>
+     */
+    @Override
+    public boolean isReady() {
+        return pos < limit || in.isReady();
+    }
+
+
+    /**
+     * ラップしたストリームに{@link ReadListener}を設定します。
+     *
+     * @param readListener 読み込み可能な時に通知を受ける必要のある{@link ReadListener}
+     */
+    @Override
+    public void setReadListener(ReadListener readListener) {
+        in.setReadListener(readListener);
+    }
+}
@@ -0,0 +1,325 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package javax.servlet;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.function.Predicate;
+import javax.servlet.annotation.ServletSecurity;
+import javax.servlet.annotation.ServletSecurity.EmptyRoleSemantic;
+import javax.servlet.annotation.ServletSecurity.TransportGuarantee;
+
+/**
+ * {@link ServletSecurityElement}もしくは{@link ServletSecurity}アノテーションから構築される、
+ * 変更不可能なセキュリティ制約の索引です。
+ *
+ * <p>HTTPメソッドごとの制約は構築時に1つのスロットにまとめられ、制約に現れるロールには番号が振られます。
+ * 呼び出し側はユーザーのロールを{@link #toRoleBits(Collection)}もしくは{@link #toRoleBits(Predicate)}で一度だけ{@link BitSet}に変換しておくことで、
+ * {@link #isAllowed}による判定を配列のコピーやオブジェクトの生成なしに行えます。
+ *
+ * <p>許可されたロールの<code>"*"</code>はアプリケーションで宣言されたすべてのロールを、
+ * <code>"**"</code>は認証されたすべてのユーザーを表します。
+ * <code>"*"</code>を含む制約は、宣言されたロールを{@link #SecurityConstraintTable(ServletSecurityElement, Collection)}に与えて構築する必要があります。
+ * アプリケーションが<code>"**"</code>という名前のロールを宣言している場合、<code>"**"</code>はそのロールを表します。
+ *
+ * <p>このクラスのインスタンスはスレッドセーフです。
+ * ただし、判定に渡した{@link BitSet}を判定中に変更してはなりません。
+ *
+ * @see ServletSecurityElement
+ *
+ * @since Servlet 4.0.1
+ */
+public final class SecurityConstraintTable {
+
+    private static final String LSTRING_FILE = "javax.servlet.LocalStrings";
+    private static ResourceBundle lStrings =
+        ResourceBundle.getBundle(LSTRING_FILE);
+
+    private static final String ALL_ROLES = "*";
+    private static final String ANY_AUTHENTICATED_USER = "**";
+
+    /*
+     * Compiled form of one HttpConstraintElement.
+     */
+    private static final class Slot {
+
+        final boolean denyAll;
+        final boolean confidential;
+        final TransportGuarantee transportGuarantee;
+        // null when access does not depend on roles
+        final BitSet roles;
+        // "**": any authenticated user, whatever roles it has
+        final boolean anyAuthenticated;
+
+        Slot(HttpConstraintElement element, Map<String, Integer> roleIndex,
+             Collection<String> declaredRoles) {
+            String[] rolesAllowed = element.getRolesAllowed();
+            this.transportGuarantee = element.getTransportGuarantee();
+            this.confidential =
+                (transportGuarantee == TransportGuarantee.CONFIDENTIAL);
+            if (rolesAllowed.length == 0) {
+                this.denyAll = (element.getEmptyRoleSemantic() == EmptyRoleSemantic.DENY);
+                this.roles = null;
+                this.anyAuthenticated = false;
+            } else {
+                boolean any = false;
+                this.denyAll = false;
+                this.roles = new BitSet();
+                for (String role : rolesAllowed) {
+                    if (ALL_ROLES.equals(role)) {
+                        if (declaredRoles == null) {
+                            throw new IllegalArgumentException(
+                                lStrings.getString("err.security.all_roles"));
+                        }
+                        for (String declared : declaredRoles) {
+                            addRole(declared, roleIndex);
+                        }
+                    } else if (ANY_AUTHENTICATED_USER.equals(role)
+                            && (declaredRoles == null
+                                || !declaredRoles.contains(role))) {
+                        any = true;
+                    } else {
+                        addRole(role, roleIndex);
+                    }
+                }
+                this.anyAuthenticated = any;
+            }
+        }
+
+        private void addRole(String role, Map<String, Integer> roleIndex) {
+            Integer index = roleIndex.get(role);
+            if (index == null) {
+                index = roleIndex.size();
+                roleIndex.put(role, index);
+            }
+            roles.set(index);
+        }
+
+        boolean isAllowed(BitSet userRoles, boolean secure) {
+            if (denyAll || (confidential && !secure)) {
+                return false;
+            }
+            return roles == null
+                || (userRoles != null
+                    && (anyAuthenticated || roles.intersects(userRoles)));
+        }
+    }
+
+    private final Slot defaultSlot;
+    private final Map<String, Slot> methodSlots;
+    private final String[] roleNames;
+    private final Map<String, Integer> roleIndex;
+
+    /**
+     * 与えられた{@link ServletSecurityElement}から索引を構築します。
+     *
+     * @param element 索引の元になる{@link ServletSecurityElement}
+     *
+     * @throws NullPointerException {@code element}がnull
+     * @throws IllegalArgumentException 許可されたロールに<code>"*"</code>が含まれる場合
+     */
+    public SecurityConstraintTable(ServletSecurityElement element) {
+        this(element, null);
+    }
+
+    /**
+     * 与えられた{@link ServletSecurityElement}と、アプリケーションで宣言されたロールから索引を構築します。
+     *
+     * <p>許可されたロールの<code>"*"</code>は{@code declaredRoles}のすべてのロールに展開されます。
+     *
+     * @param element 索引の元になる{@link ServletSecurityElement}
+     * @param declaredRoles アプリケーションで宣言されたロールの名前。nullの場合は<code>"*"</code>を使用できません
+     *
+     * @throws NullPointerException {@code element}がnull
+     * @throws IllegalArgumentException {@code declaredRoles}がnullで、許可されたロールに<code>"*"</code>が含まれる場合
+     */
+    public SecurityConstraintTable(ServletSecurityElement element,
+                                   Collection<String> declaredRoles) {
+        Map<String, Integer> roles = new LinkedHashMap<>();
+        this.defaultSlot = new Slot(element, roles, declaredRoles);
+        Collection<HttpMethodConstraintElement> constraints =
+            element.getHttpMethodConstraints();
+        if (constraints.isEmpty()) {
+            this.methodSlots = Collections.emptyMap();
+        } else {
+            Map<String, Slot> slots = new HashMap<>(constraints.size() * 2);
+            for (HttpMethodConstraintElement constraint : constraints) {
+                slots.put(constraint.getMethodName(),
+                          new Slot(constraint, roles, declaredRoles));
+            }
+            this.methodSlots = slots;
+        }
+        this.roleNames = roles.keySet().toArray(new String[roles.size()]);
+        this.roleIndex = new HashMap<>(roles);
+    }
+
+    /**
+     * 与えられた{@link ServletSecurity}アノテーションの値から索引を構築します。
+     *
+     * @param annotation アノテーションの値
+     *
+     * @throws IllegalArgumentException 重複したメソッド名が検出されたか、許可されたロールに<code>"*"</code>が含まれる場合
+     */
+    public SecurityConstraintTable(ServletSecurity annotation) {
+        this(new ServletSecurityElement(annotation));
+    }
+
+    /**
+     * 制約に現れるロールの数を返します。
+     *
+     * @return ロールの数。{@link #toRoleBits}が返す{@link BitSet}のビットはこの数より小さい位置にのみ立ちます
+     */
+    public int getRoleCount() {
+        return roleNames.length;
+    }
+
+    /**
+     * 与えられた番号のロールの名前を返します。
+     *
+     * @param index ロールの番号
+     *
+     * @return ロールの名前
+     *
+     * @throws IndexOutOfBoundsException {@code index}が0未満か{@link #getRoleCount}以上の場合
+     */
+    public String getRoleName(int index) {
+        return roleNames[index];
+    }
+
+    /**
+     * ユーザーが属するロールの名前のコレクションを、この索引で使用するロールのビット集合に変換します。
+     *
+     * <p>制約に現れないロールは無視されます。
+     * 返された{@link BitSet}はユーザーごとに保持して再利用できます。
+     *
+     * @param userRoles ユーザーが属するロールの名前
+     *
+     * @return ロールのビット集合
+     */
+    public BitSet toRoleBits(Collection<String> userRoles) {
+        BitSet bits = new BitSet(roleNames.length);
+        for (String role : userRoles) {
+            Integer index = roleIndex.get(role);
+            if (index != null) {
+                bits.set(index);
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * ユーザーがロールに属するかどうかの判定を、この索引で使用するロールのビット集合に変換します。
+     *
+     * <p>{@code isUserInRole}は制約に現れるロールごとに一度だけ呼び出されます。
+     * 例えば<code>request::isUserInRole</code>を渡すことができます。
+     *
+     * @param isUserInRole ユーザーが与えられた名前のロールに属するかどうかを返す判定
+     *
+     * @return ロールのビット集合
+     */
+    public BitSet toRoleBits(Predicate<String> isUserInRole) {
+        BitSet bits = new BitSet(roleNames.length);
+        for (int i = 0; i < roleNames.length; i++) {
+            if (isUserInRole.test(roleNames[i])) {
+                bits.set(i);
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * 与えられたロールを持つユーザーが、与えられたトランスポートで、与えられたHTTPメソッドでアクセスできるかどうかを判定します。
+     *
+     * <p>このメソッドはオブジェクトを生成しません。
+     *
+     * @param method HTTPメソッドの名前
+     * @param userRoles {@link #toRoleBits}で得たユーザーのロールのビット集合。認証されていない場合はnull
+     * @param secure 接続が{@link TransportGuarantee#CONFIDENTIAL}を満たす場合はtrue
+     *
+     * @return アクセスが許可される場合はtrue
+     */
+    public boolean isAllowed(String method, BitSet userRoles, boolean secure) {
+        return getSlot(method).isAllowed(userRoles, secure);
+    }
+
+    /**
+     * 与えられたHTTPメソッドへのアクセスに、ロールのメンバーシップ、つまり認証が必要かどうかを返します。
+     *
+     * @param method HTTPメソッドの名前
+     *
+     * @return アクセスが1つ以上のロールもしくは認証されたユーザーに限定されている場合はtrue
+     */
+    public boolean isAuthenticationRequired(String method) {
+        return getSlot(method).roles != null;
+    }
+
+    /**
+     * 与えられたHTTPメソッドへのアクセスが、認証状態と身元とは無関係に拒否されるかどうかを返します。
+     *
+     * @param method HTTPメソッドの名前
+     *
+     * @return ロールが指定されておらず{@link EmptyRoleSemantic#DENY}が適用される場合はtrue
+     */
+    public boolean isDenied(String method) {
+        return getSlot(method).denyAll;
+    }
+
+    /**
+     * 与えられたHTTPメソッドに適用されるデータ保護要件を返します。
+     *
+     * @param method HTTPメソッドの名前
+     *
+     * @return 適用される{@link TransportGuarantee}
+     */
+    public TransportGuarantee getTransportGuarantee(String method) {
+        return getSlot(method).transportGuarantee;
+    }
+
+    private Slot getSlot(String method) {
+        Slot slot = methodSlots.get(method);
+        return (slot != null) ? slot : defaultSlot;
+    }
+}
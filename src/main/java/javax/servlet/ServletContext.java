@@ -1031,6 +1031,7 @@ public interface ServletContext {
      * <li>{@link ServletRequestAttributeListener}
      * <li>{@link javax.servlet.http.HttpSessionAttributeListener}
      * <li>{@link javax.servlet.http.HttpSessionIdListener}
+     * <li>{@link javax.servlet.http.HttpSessionAttributeBatchListener}
      * <li>{@link javax.servlet.http.HttpSessionListener}
      * </ul>
      *
@@ -1072,6 +1073,7 @@ public interface ServletContext {
      * <li>{@link ServletRequestAttributeListener}
      * <li>{@link javax.servlet.http.HttpSessionAttributeListener}
      * <li>{@link javax.servlet.http.HttpSessionIdListener}
+     * <li>{@link javax.servlet.http.HttpSessionAttributeBatchListener}
      * <li>{@link javax.servlet.http.HttpSessionListener}
      * </ul>
      *
@@ -1109,6 +1111,7 @@ public interface ServletContext {
      * <li>{@link ServletRequestAttributeListener}
      * <li>{@link javax.servlet.http.HttpSessionAttributeListener}
      * <li>{@link javax.servlet.http.HttpSessionIdListener}
+     * <li>{@link javax.servlet.http.HttpSessionAttributeBatchListener}
      * <li>{@link javax.servlet.http.HttpSessionListener}
      * </ul>
      *
@@ -1148,6 +1151,7 @@ public interface ServletContext {
      * {@link ServletRequestAttributeListener}、
      * {@link javax.servlet.http.HttpSessionAttributeListener}、
      * {@link javax.servlet.http.HttpSessionIdListener}、
+     * {@link javax.servlet.http.HttpSessionAttributeBatchListener}、
      * {@link javax.servlet.http.HttpSessionListener}
      * のインターフェースのうち最低でも一つ実装する必要があります。
      *
@@ -1177,6 +1181,7 @@ public interface ServletContext {
      * {@link ServletRequestAttributeListener}、
      * {@link javax.servlet.http.HttpSessionAttributeListener}、
      * {@link javax.servlet.http.HttpSessionIdListener}、
+     * {@link javax.servlet.http.HttpSessionAttributeBatchListener}、
      * {@link javax.servlet.http.HttpSessionListener}
      * のいずれのインターフェースも実装していなかった場合
      *
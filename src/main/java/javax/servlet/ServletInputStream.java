@@ -60,6 +60,9 @@ package javax.servlet;
 
 import java.io.InputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
 
 /**
  * 一度に1行ずつデータを読み込む効率的なreadLineメソッドを含む、クライアントからのリクエストからバイナリデータを読み込むための入力ストリームを提供します。
@@ -77,6 +80,18 @@ import java.io.IOException;
 
 public abstract class ServletInputStream extends InputStream {
 
+    /*
+     * Size of the scratch buffer used to read into buffers that are not
+     * backed by an accessible array.
+     */
+    private static final int TRANSFER_BUFFER_SIZE = 8192;
+
+    /*
+     * Scratch buffer for read(ByteBuffer). Allocated on first use.
+     */
+    private byte[] transferBuffer;
+
+    private ReadableByteChannel channel;
 
 
     /**
@@ -126,6 +141,115 @@ public abstract class ServletInputStream extends InputStream {
     }
 
 
+    /**
+     * 入力ストリームを一度に1行読み込み、指定した<code>ByteBuffer</code>に格納します。
+     * バッファの残りの容量に達するか、改行文字に到達するまでバッファの現在の位置からバイトを読み込み、読み込んだ分だけ位置を進めます。
+     *
+     * <p>このメソッドはバイトを読み取る前に入力ストリームの終端に達した場合は-1を返します。
+     *
+     * <p>デフォルトの実装ではバッファが配列を持つ場合は中間のコピーを作らずに{@link #readLine(byte[], int, int)}で配列に直接読み込み、
+     * そうでない場合は1バイトずつ読み込みます。
+     * ネイティブなバッファを持つサーブレットコンテナはこのメソッドをオーバーライドしてバッファから直接コピーすることができます。
+     *
+     * @param dst 		データが読み込まれる<code>ByteBuffer</code>
+     *
+     * @return			読み込まれた実際のバイト数を示す整数、ストリームの終端に達した場合は-1
+     *
+     * @exception IOException	I/O例外が発生した
+     *
+     * @exception java.nio.ReadOnlyBufferException <code>dst</code>が読み込み専用の場合
+     *
+     * @see BufferedServletInputStream
+     *
+     * @since Servlet 4.0.1
+     */
+    public int readLine(ByteBuffer dst) throws IOException {
+
+	int len = dst.remaining();
+	if (len <= 0) {
+	    return 0;
+	}
+	if (dst.hasArray()) {
+	    int pos = dst.position();
+	    int count = readLine(dst.array(), dst.arrayOffset() + pos, len);
+	    if (count > 0) {
+		dst.position(pos + count);
+	    }
+	    return count;
+	}
+	int count = 0, c;
+
+	while ((c = read()) != -1) {
+	    dst.put((byte)c);
+	    count++;
+	    if (c == '\n' || count == len) {
+		break;
+	    }
+	}
+	return count > 0 ? count : -1;
+    }
+
+
+    /**
+     * 入力ストリームから指定した<code>ByteBuffer</code>にバイトを読み込みます。
+     * 最大でバッファの残りの容量まで読み込み、読み込んだ分だけバッファの位置を進めます。
+     *
+     * <p>デフォルトの実装ではバッファが配列を持つ場合は{@link #read(byte[], int, int)}で配列に直接読み込み、
+     * ダイレクトバッファなど配列を持たない場合は一時的な配列を経由して読み込みます。
+     * ネイティブなバッファを持つサーブレットコンテナはこのメソッドをオーバーライドして、ヒープへのコピーを行わずに読み込むことができます。
+     *
+     * @param dst データが読み込まれる<code>ByteBuffer</code>
+     *
+     * @return 読み込まれた実際のバイト数を示す整数、ストリームの終端に達した場合は-1
+     *
+     * @exception IOException I/O例外が発生した
+     *
+     * @exception java.nio.ReadOnlyBufferException <code>dst</code>が読み込み専用の場合
+     *
+     * @since Servlet 4.0.1
+     */
+    public int read(ByteBuffer dst) throws IOException {
+	int len = dst.remaining();
+	if (len <= 0) {
+	    return 0;
+	}
+	if (dst.hasArray()) {
+	    int pos = dst.position();
+	    int n = read(dst.array(), dst.arrayOffset() + pos, len);
+	    if (n > 0) {
+		dst.position(pos + n);
+	    }
+	    return n;
+	}
+	if (transferBuffer == null) {
+	    transferBuffer = new byte[TRANSFER_BUFFER_SIZE];
+	}
+	int n = read(transferBuffer, 0, Math.min(len, transferBuffer.length));
+	if (n > 0) {
+	    dst.put(transferBuffer, 0, n);
+	}
+	return n;
+    }
+
+
+    /**
+     * この入力ストリームから読み込む<code>ReadableByteChannel</code>を返します。
+     *
+     * <p>チャネルからの読み込みは{@link #read(ByteBuffer)}を呼び出し、チャネルを閉じるとこの入力ストリームも閉じられます。
+     * 同じ入力ストリームに対しては常に同じチャネルが返されます。
+     *
+     * @return この入力ストリームから読み込む<code>ReadableByteChannel</code>
+     *
+     * @since Servlet 4.0.1
+     */
+    public ReadableByteChannel getChannel() {
+	if (channel == null) {
+	    channel = new InputChannel(this);
+	}
+	return channel;
+    }
+
+
     /**
      * ストリームのすべてのデータが読み取られた場合はtrueを返し、そうでない場合はfalseを返します。
      *
@@ -161,7 +285,39 @@ public abstract class ServletInputStream extends InputStream {
 
      */
     public abstract void setReadListener(ReadListener readListener);
-}
 
 
+    /*
+     * Channel view of a ServletInputStream.
+     */
+    private static final class InputChannel implements ReadableByteChannel {
+
+	private final ServletInputStream in;
+	private boolean open = true;
+
+	InputChannel(ServletInputStream in) {
+	    this.in = in;
+	}
+
+	@Override
+	public int read(ByteBuffer dst) throws IOException {
+	    if (!open) {
+		throw new ClosedChannelException();
+	    }
+	    return in.read(dst);
+	}
+
+	@Override
+	public boolean isOpen() {
+	    return open;
+	}
 
+	@Override
+	public void close() throws IOException {
+	    if (open) {
+		open = false;
+		in.close();
+	    }
+	}
+    }
+}
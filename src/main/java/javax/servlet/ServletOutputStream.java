@@ -61,6 +61,10 @@ package javax.servlet;
 import java.io.OutputStream;
 import java.io.IOException;
 import java.io.CharConversionException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.text.MessageFormat;
 import java.util.ResourceBundle;
 
@@ -81,6 +85,31 @@ public abstract class ServletOutputStream extends OutputStream  {
     private static ResourceBundle lStrings =
         ResourceBundle.getBundle(LSTRING_FILE);
 
+    /*
+     * Size of the scratch buffer used by the print methods. Large enough
+     * for the digits of any long value.
+     */
+    private static final int PRINT_BUFFER_SIZE = 512;
+
+    /*
+     * Scratch buffer the print methods encode into, so that each chunk is
+     * handed to write(byte[], int, int) in one call. Allocated on first use.
+     */
+    private byte[] printBuffer;
+
+    /*
+     * Size of the scratch buffer used to copy data that is not backed by
+     * an accessible array.
+     */
+    private static final int TRANSFER_BUFFER_SIZE = 8192;
+
+    /*
+     * Scratch buffer for write(ByteBuffer) and transferFrom. Allocated on
+     * first use; larger direct buffers get a temporary array of their own.
+     */
+    private byte[] transferBuffer;
+
+    private WritableByteChannel channel;
 
     
     /**
@@ -103,24 +132,67 @@ public abstract class ServletOutputStream extends OutputStream  {
     public void print(String s) throws IOException {
         if (s==null) s="null";
         int len = s.length();
-        for (int i = 0; i < len; i++) {
-            char c = s.charAt (i);
-
-            //
-            // XXX NOTE:  This is clearly incorrect for many strings,
-            // but is the only consistent approach within the current
-            // servlet framework.  It must suffice until servlet output
-            // streams properly encode their output.
-            //
-            if ((c & 0xff00) != 0) {        // high order byte must be zero
-                String errMsg = lStrings.getString("err.not_iso8859_1");
-                Object[] errArgs = new Object[1];
-                errArgs[0] = Character.valueOf(c);
-                errMsg = MessageFormat.format(errMsg, errArgs);
-                throw new CharConversionException(errMsg);
+        if (len == 0) {
+            return;
+        }
+        byte[] buf = getPrintBuffer();
+        int off = 0;
+        while (off < len) {
+            int end = Math.min(len, off + buf.length);
+            int count = 0;
+            for (int i = off; i < end; i++) {
+                char c = s.charAt(i);
+
+                //
+                // XXX NOTE:  This is clearly incorrect for many strings,
+                // but is the only consistent approach within the current
+                // servlet framework.  It must suffice until servlet output
+                // streams properly encode their output.
+                //
+                if ((c & 0xff00) != 0) {    // high order byte must be zero
+                    // the characters before this one are still written
+                    if (count > 0) {
+                        write(buf, 0, count);
+                    }
+                    String errMsg = lStrings.getString("err.not_iso8859_1");
+                    Object[] errArgs = new Object[1];
+                    errArgs[0] = Character.valueOf(c);
+                    errMsg = MessageFormat.format(errMsg, errArgs);
+                    throw new CharConversionException(errMsg);
+                }
+                buf[count++] = (byte) c;
             }
-            write (c);
+            write(buf, 0, count);
+            off = end;
+        }
+    }
+
+
+    /*
+     * Writes the decimal digits of l with a single call to write, without
+     * going through a String. Negative values are handled in the negative
+     * range so that Long.MIN_VALUE needs no special case.
+     */
+    private void printDigits(long l) throws IOException {
+        byte[] buf = getPrintBuffer();
+        int pos = 20;
+        long q = (l < 0) ? l : -l;
+        do {
+            buf[--pos] = (byte) ('0' - (q % 10));
+            q /= 10;
+        } while (q != 0);
+        if (l < 0) {
+            buf[--pos] = '-';
         }
+        write(buf, pos, 20 - pos);
+    }
+
+
+    private byte[] getPrintBuffer() {
+        if (printBuffer == null) {
+            printBuffer = new byte[PRINT_BUFFER_SIZE];
+        }
+        return printBuffer;
     }
 
 
@@ -172,7 +244,7 @@ public abstract class ServletOutputStream extends OutputStream  {
      */  
 
     public void print(int i) throws IOException {
-        print(String.valueOf(i));
+        printDigits(i);
     }
 
 
@@ -189,7 +261,7 @@ public abstract class ServletOutputStream extends OutputStream  {
      */
 
     public void print(long l) throws IOException {
-        print(String.valueOf(l));
+        printDigits(l);
     }
 
 
@@ -352,6 +424,136 @@ public abstract class ServletOutputStream extends OutputStream  {
         println();
     }
 
+    /**
+     * 指定した<code>ByteBuffer</code>の現在の位置からリミットまでのすべてのバイトをクライアントに書き込みます。
+     * 戻ったときバッファの位置はリミットと等しくなっています。
+     *
+     * <p>このメソッドは{@link #write(byte[], int, int)}をちょうど1回だけ呼び出すため、
+     * {@link #setWriteListener}で非ブロッキングI/Oを使用している場合も、{@link #isReady}が<code>true</code>を返したときに1回呼び出すことができます。
+     *
+     * <p>デフォルトの実装ではバッファが配列を持つ場合は残りのバイトを{@link #write(byte[], int, int)}に直接渡します。
+     * ダイレクトバッファなど配列を持たない場合は、残りのバイトを一時的な配列にコピーしてから書き込みます。
+     * ネイティブなバッファを持つサーブレットコンテナはこのメソッドをオーバーライドして、ヒープへのコピーを行わずに書き込むことができます。
+     *
+     * @param src 書き込むデータを含む<code>ByteBuffer</code>
+     *
+     * @exception IOException I/O例外が発生した。この場合バッファの位置は変更されない
+     *
+     * @since Servlet 4.0.1
+     */
+    public void write(ByteBuffer src) throws IOException {
+        int pos = src.position();
+        int len = src.remaining();
+        if (len <= 0) {
+            return;
+        }
+        if (src.hasArray()) {
+            write(src.array(), src.arrayOffset() + pos, len);
+            src.position(pos + len);
+            return;
+        }
+        byte[] buf = len <= TRANSFER_BUFFER_SIZE ? getTransferBuffer() : new byte[len];
+        src.get(buf, 0, len);
+        try {
+            write(buf, 0, len);
+        } catch (IOException | RuntimeException e) {
+            src.position(pos);
+            throw e;
+        }
+    }
+
+
+    /**
+     * この出力ストリームに書き込む<code>WritableByteChannel</code>を返します。
+     *
+     * <p>チャネルへの書き込みは{@link #write(ByteBuffer)}を呼び出すため、1回の書き込みでバッファのすべてのバイトが書き込まれます。
+     * チャネルを閉じるとこの出力ストリームも閉じられます。
+     * 同じ出力ストリームに対しては常に同じチャネルが返されます。
+     *
+     * @return この出力ストリームに書き込む<code>WritableByteChannel</code>
+     *
+     * @since Servlet 4.0.1
+     */
+    public WritableByteChannel getChannel() {
+        if (channel == null) {
+            channel = new OutputChannel(this);
+        }
+        return channel;
+    }
+
+
+    /**
+     * 指定したファイルチャネルの指定した位置から最大<code>count</code>バイトをクライアントに書き込みます。
+     * ファイルチャネルの位置は変更されません。
+     *
+     * <p>静的なファイルや大きなダウンロードを返す場合に、サーブレットコンテナはこのメソッドをオーバーライドして
+     * {@link FileChannel#transferTo}やsendfileのようなユーザー空間へのコピーを行わない転送を使用することができます。
+     * そのような転送が行われるかどうかは{@link #isZeroCopyTransfer()}で確認できます。
+     *
+     * <p>このメソッドは<code>count</code>より少ないバイトを転送して戻ることがあります。
+     * 呼び出し側は戻り値の分だけ位置を進めて繰り返し呼び出します。
+     * {@link #setWriteListener}で非ブロッキングI/Oを使用している場合は、呼び出しのたびに事前に{@link #isReady}が<code>true</code>を返すことを確認しなければなりません。
+     *
+     * <p>デフォルトの実装ではファイルチャネルから一時的な配列に一度だけ読み込み、{@link #write(byte[], int, int)}で書き込みます。
+     *
+     * @param src 読み込むファイルチャネル
+     *
+     * @param position 転送を開始するファイル内の位置
+     *
+     * @param count 転送する最大バイト数
+     *
+     * @return 実際に転送されたバイト数。ファイルの終端に達した場合は0
+     *
+     * @exception IOException I/O例外が発生した
+     *
+     * @exception IllegalArgumentException <code>position</code>もしくは<code>count</code>が負の場合
+     *
+     * @since Servlet 4.0.1
+     */
+    public long transferFrom(FileChannel src, long position, long count)
+            throws IOException {
+        if (position < 0 || count < 0) {
+            throw new IllegalArgumentException();
+        }
+        if (count == 0) {
+            return 0;
+        }
+        byte[] buf = getTransferBuffer();
+        ByteBuffer bb = ByteBuffer.wrap(buf, 0, (int) Math.min(buf.length, count));
+        int n = src.read(bb, position);
+        if (n <= 0) {
+            return 0;
+        }
+        write(buf, 0, n);
+        return n;
+    }
+
+
+    /**
+     * この出力ストリームの{@link #transferFrom}がユーザー空間へのコピーを行わずにデータを転送するかどうかを返します。
+     *
+     * <p>サーブレットコンテナは{@link #transferFrom}をsendfileなどに対応させた場合にこのメソッドをオーバーライドします。
+     * 接続がTLSを使用している場合など、同じコンテナでもストリームによって結果が異なることがあります。
+     *
+     * @implSpec デフォルト実装では<code>false</code>を返します。
+     *
+     * @return ユーザー空間へのコピーを行わずに転送する場合は<code>true</code>、そうでない場合は<code>false</code>
+     *
+     * @since Servlet 4.0.1
+     */
+    public boolean isZeroCopyTransfer() {
+        return false;
+    }
+
+
+    private byte[] getTransferBuffer() {
+        if (transferBuffer == null) {
+            transferBuffer = new byte[TRANSFER_BUFFER_SIZE];
+        }
+        return transferBuffer;
+    }
+
+
     /**
      * このメソッドはブロックせずにデータを書き込むことができるかどうかを判断するために使用できます。
      *
@@ -379,4 +581,41 @@ public abstract class ServletOutputStream extends OutputStream  {
      */
     public abstract void setWriteListener(WriteListener writeListener);
 
+
+
+    /*
+     * Channel view of a ServletOutputStream.
+     */
+    private static final class OutputChannel implements WritableByteChannel {
+
+        private final ServletOutputStream out;
+        private boolean open = true;
+
+        OutputChannel(ServletOutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            if (!open) {
+                throw new ClosedChannelException();
+            }
+            int n = src.remaining();
+            out.write(src);
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (open) {
+                open = false;
+                out.close();
+            }
+        }
+    }
 }
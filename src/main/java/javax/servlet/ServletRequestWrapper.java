@@ -79,6 +79,12 @@ public class ServletRequestWrapper implements ServletRequest {
 
     private ServletRequest request;
 
+    /*
+     * Flattened wrapper chain, built lazily by isWrapperFor and
+     * getInnermostRequest and rebuilt when a wrapper in it is re-targeted.
+     */
+    private WrapperChain chain;
+
     /**
      * 指定されたリクエストオブジェクトをラップするServletRequestアダプタを作成します。
      * @throws java.lang.IllegalArgumentException requestがnull
@@ -115,10 +121,53 @@ public class ServletRequestWrapper implements ServletRequest {
         if (request == null) {
             throw new IllegalArgumentException("Request cannot be null");
         }
+        WrapperChain c = chain;
+        if (c != null) {
+            c.invalidate();
+        }
         this.request = request;
     }
 
 
+    /**
+     * このServletRequestWrapperがラップしている最も内側の、つまりそれ自身はServletRequestWrapperではない{@link ServletRequest}を返します。
+     *
+     * <p>ラップの連なりは最初の呼び出しで平坦化されてキャッシュされ、連なりの中のラッパーで{@link #setRequest}が呼び出されるまで再利用されます。
+     *
+     * @return 最も内側の{@link ServletRequest}
+     *
+     * @since Servlet 4.0.1
+     */
+    public ServletRequest getInnermostRequest() {
+        return (ServletRequest) getChain().innermost();
+    }
+
+
+    /*
+     * Returns the flattened chain below this wrapper, rebuilding it from
+     * the wrapped request's own chain when it is missing or stale.
+     */
+    WrapperChain getChain() {
+        WrapperChain c = chain;
+        if (c == null || !c.isValid()) {
+            ServletRequest r = request;
+            c = new WrapperChain(r,
+                (r instanceof ServletRequestWrapper) ?
+                    ((ServletRequestWrapper) r).getChain() : null);
+            chain = c;
+        }
+        return c;
+    }
+
+    /*
+     * The chain as last built, without validating or building it; used by
+     * WrapperChain to find this wrapper's position in an outer chain.
+     */
+    final WrapperChain cachedChain() {
+        return chain;
+    }
+
+
     /**
      * このメソッドのデフォルトの動作はラップされたリクエストオブジェクトのgetAttribute(String name)を呼び出すことです。
      */
@@ -483,13 +532,13 @@ public class ServletRequestWrapper implements ServletRequest {
      * @since Servlet 3.0
      */
     public boolean isWrapperFor(ServletRequest wrapped) {
-        if (request == wrapped) {
+        WrapperChain c = getChain();
+        int d = c.delegateIndex();
+        int i = c.indexOf(wrapped);
+        if (i >= 0 && i >= d) {
             return true;
-        } else if (request instanceof ServletRequestWrapper) {
-            return ((ServletRequestWrapper) request).isWrapperFor(wrapped);
-        } else {
-            return false;
         }
+        return d >= 0 && ((ServletRequestWrapper) c.get(d)).isWrapperFor(wrapped);
     }
 
 
@@ -510,13 +559,12 @@ public class ServletRequestWrapper implements ServletRequest {
                 wrappedType.getName() + " not a subinterface of " +
                 ServletRequest.class.getName());
         }
-        if (wrappedType.isAssignableFrom(request.getClass())) {
+        WrapperChain c = getChain();
+        if (c.containsType(wrappedType)) {
             return true;
-        } else if (request instanceof ServletRequestWrapper) {
-            return ((ServletRequestWrapper) request).isWrapperFor(wrappedType);
-        } else {
-            return false;
         }
+        int d = c.delegateIndex();
+        return d >= 0 && ((ServletRequestWrapper) c.get(d)).isWrapperFor(wrappedType);
     }
 
 
@@ -76,6 +76,12 @@ import java.util.Locale;
  
 public class ServletResponseWrapper implements ServletResponse {
 	private ServletResponse response;
+
+	/*
+	 * Flattened wrapper chain, built lazily by isWrapperFor and
+	 * getInnermostResponse and rebuilt when a wrapper in it is re-targeted.
+	 */
+	private WrapperChain chain;
 	/**
      * 指定されたレスポンスオブジェクトをラップするServletResponseアダプタを作成します。
 	 * @throws java.lang.IllegalArgumentException responseがnull
@@ -113,9 +119,50 @@ public class ServletResponseWrapper implements ServletResponse {
 	    if (response == null) {
 		throw new IllegalArgumentException("Response cannot be null");
 	    }
+	    WrapperChain c = chain;
+	    if (c != null) {
+	        c.invalidate();
+	    }
 	    this.response = response;
 	}
 
+    /**
+     * このServletResponseWrapperがラップしている最も内側の、つまりそれ自身はServletResponseWrapperではない{@link ServletResponse}を返します。
+     *
+     * <p>ラップの連なりは最初の呼び出しで平坦化されてキャッシュされ、連なりの中のラッパーで{@link #setResponse}が呼び出されるまで再利用されます。
+     *
+     * @return 最も内側の{@link ServletResponse}
+     *
+     * @since Servlet 4.0.1
+     */
+    public ServletResponse getInnermostResponse() {
+        return (ServletResponse) getChain().innermost();
+    }
+
+    /*
+     * Returns the flattened chain below this wrapper, rebuilding it from
+     * the wrapped response's own chain when it is missing or stale.
+     */
+    WrapperChain getChain() {
+        WrapperChain c = chain;
+        if (c == null || !c.isValid()) {
+            ServletResponse r = response;
+            c = new WrapperChain(r,
+                (r instanceof ServletResponseWrapper) ?
+                    ((ServletResponseWrapper) r).getChain() : null);
+            chain = c;
+        }
+        return c;
+    }
+
+    /*
+     * The chain as last built, without validating or building it; used by
+     * WrapperChain to find this wrapper's position in an outer chain.
+     */
+    final WrapperChain cachedChain() {
+        return chain;
+    }
+
     /**
      * このメソッドのデフォルトの動作はラップされたレスポンスオブジェクトのsetCharacterEncoding(String charset)を呼び出すことです。
      *
@@ -257,13 +304,13 @@ public class ServletResponseWrapper implements ServletResponse {
      * @since Servlet 3.0
      */
     public boolean isWrapperFor(ServletResponse wrapped) {
-        if (response == wrapped) {
+        WrapperChain c = getChain();
+        int d = c.delegateIndex();
+        int i = c.indexOf(wrapped);
+        if (i >= 0 && i >= d) {
             return true;
-        } else if (response instanceof ServletResponseWrapper) {
-            return ((ServletResponseWrapper) response).isWrapperFor(wrapped);
-        } else {
-            return false;
         }
+        return d >= 0 && ((ServletResponseWrapper) c.get(d)).isWrapperFor(wrapped);
     }
 
 
@@ -284,13 +331,12 @@ public class ServletResponseWrapper implements ServletResponse {
                 wrappedType.getName() + " not a subinterface of " +
                 ServletResponse.class.getName());
         }
-        if (wrappedType.isAssignableFrom(response.getClass())) {
+        WrapperChain c = getChain();
+        if (c.containsType(wrappedType)) {
             return true;
-        } else if (response instanceof ServletResponseWrapper) {
-            return ((ServletResponseWrapper) response).isWrapperFor(wrappedType);
-        } else {
-            return false;
         }
+        int d = c.delegateIndex();
+        return d >= 0 && ((ServletResponseWrapper) c.get(d)).isWrapperFor(wrappedType);
     }
 
 }
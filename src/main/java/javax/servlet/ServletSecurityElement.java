@@ -47,6 +47,8 @@ import javax.servlet.annotation.ServletSecurity;
 /**
  * {@link ServletSecurity}アノテーションの値を表現するJavaクラスです。
  *
+ * @see SecurityConstraintTable
+ *
  * @since Servlet 3.0
  */
 public class ServletSecurityElement extends HttpConstraintElement {
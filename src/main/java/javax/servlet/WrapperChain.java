@@ -0,0 +1,252 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package javax.servlet;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+
+/*
+ * Flattened view of the objects wrapped by a ServletRequestWrapper or
+ * ServletResponseWrapper.
+ *
+ * Elements are indexed from the innermost object (index 0) outwards, so a
+ * wrapper's index is the number of objects below it and does not depend
+ * on which outer wrapper's chain it is looked up in. A chain shares the
+ * element array of its tail and appends a single slot, so a linear stack
+ * of wrappers needs one array in total; only a wrapper that is wrapped by
+ * more than one outer wrapper causes a copy.
+ *
+ * All chains built on the same innermost chain share one validity token.
+ * setRequest/setResponse on any wrapper clears the token, so checking a
+ * chain is a single volatile read and re-targeting one request's wrappers
+ * never affects the chains of any other request.
+ *
+ * A wrapper class that overrides isWrapperFor must still be asked: the
+ * chain records the outermost such element, the wrappers answer from the
+ * chain only for the elements above it and delegate the rest to it.
+ */
+final class WrapperChain {
+
+    private static final ClassValue<Set<Class<?>>> TYPES =
+        new ClassValue<Set<Class<?>>>() {
+            @Override
+            protected Set<Class<?>> computeValue(Class<?> type) {
+                Set<Class<?>> types = new HashSet<>();
+                Deque<Class<?>> pending = new ArrayDeque<>();
+                pending.add(type);
+                while (!pending.isEmpty()) {
+                    Class<?> c = pending.poll();
+                    if (types.add(c)) {
+                        if (c.getSuperclass() != null) {
+                            pending.add(c.getSuperclass());
+                        }
+                        Collections.addAll(pending, c.getInterfaces());
+                    }
+                }
+                return Collections.unmodifiableSet(types);
+            }
+        };
+
+    /* True for wrapper classes that override either isWrapperFor method. */
+    private static final ClassValue<Boolean> DELEGATES =
+        new ClassValue<Boolean>() {
+            @Override
+            protected Boolean computeValue(Class<?> type) {
+                Class<?> base;
+                Class<?> wrapped;
+                if (ServletRequestWrapper.class.isAssignableFrom(type)) {
+                    base = ServletRequestWrapper.class;
+                    wrapped = ServletRequest.class;
+                } else if (ServletResponseWrapper.class.isAssignableFrom(type)) {
+                    base = ServletResponseWrapper.class;
+                    wrapped = ServletResponse.class;
+                } else {
+                    return false;
+                }
+                try {
+                    return type.getMethod("isWrapperFor", wrapped).getDeclaringClass() != base
+                        || type.getMethod("isWrapperFor", Class.class).getDeclaringClass() != base;
+                } catch (NoSuchMethodException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+
+    /* Shared by every chain built on the same innermost chain. */
+    private static final class Token {
+        volatile boolean valid = true;
+    }
+
+    /* The array that chains built on one another append to. */
+    private static final class Elements {
+        Object[] array;
+        int size;
+
+        Elements(Object[] array, int size) {
+            this.array = array;
+            this.size = size;
+        }
+    }
+
+    private final Elements shared;
+    private final Object[] elements;
+    private final int length;
+    private final Token token;
+    private final WrapperChain tail;
+
+    /* Index of the outermost element that overrides isWrapperFor, or -1. */
+    private final int delegate;
+
+    /*
+     * Every type implemented by the elements from the delegate (or the
+     * innermost object) up, built on the first isWrapperFor(Class) call.
+     */
+    private volatile Set<Class<?>> types;
+
+    /*
+     * Builds the chain for a wrapper whose wrapped object is head; tail is
+     * the chain of head itself when head is a wrapper, otherwise null.
+     */
+    WrapperChain(Object head, WrapperChain tail) {
+        this.tail = tail;
+        if (tail == null) {
+            this.shared = new Elements(new Object[8], 1);
+            this.shared.array[0] = head;
+            this.elements = shared.array;
+            this.length = 1;
+            this.token = new Token();
+            this.delegate = -1;
+            return;
+        }
+        int n = tail.length;
+        Elements s = tail.shared;
+        Object[] array;
+        synchronized (s) {
+            if (s.size == n) {
+                if (s.array.length == n) {
+                    s.array = Arrays.copyOf(s.array, n * 2);
+                }
+                s.array[n] = head;
+                s.size = n + 1;
+            } else if (s.array[n] != head) {
+                Object[] copy = new Object[n * 2];
+                System.arraycopy(tail.elements, 0, copy, 0, n);
+                copy[n] = head;
+                s = new Elements(copy, n + 1);
+            }
+            array = s.array;
+        }
+        this.shared = s;
+        this.elements = array;
+        this.length = n + 1;
+        this.token = tail.token;
+        this.delegate = DELEGATES.get(head.getClass()) ? n : tail.delegate;
+    }
+
+    boolean isValid() {
+        return token.valid;
+    }
+
+    /*
+     * Marks this chain and every chain sharing its token as stale.
+     */
+    void invalidate() {
+        token.valid = false;
+    }
+
+    /*
+     * Returns the index of wrapped in this chain, or -1. Only the position
+     * the object would have is compared, using the chain the object holds
+     * itself when it is a wrapper.
+     */
+    int indexOf(Object wrapped) {
+        int i = 0;
+        if (wrapped instanceof ServletRequestWrapper) {
+            WrapperChain c = ((ServletRequestWrapper) wrapped).cachedChain();
+            i = (c == null) ? -1 : c.length;
+        } else if (wrapped instanceof ServletResponseWrapper) {
+            WrapperChain c = ((ServletResponseWrapper) wrapped).cachedChain();
+            i = (c == null) ? -1 : c.length;
+        }
+        return (i >= 0 && i < length && elements[i] == wrapped) ? i : -1;
+    }
+
+    boolean containsType(Class<?> wrappedType) {
+        return types().contains(wrappedType);
+    }
+
+    private Set<Class<?>> types() {
+        Set<Class<?>> t = types;
+        if (t == null) {
+            Set<Class<?>> own = TYPES.get(elements[length - 1].getClass());
+            if (tail == null || delegate == length - 1) {
+                t = own;
+            } else {
+                Set<Class<?>> inner = tail.types();
+                if (inner.containsAll(own)) {
+                    t = inner;
+                } else {
+                    Set<Class<?>> union = new HashSet<>(inner);
+                    union.addAll(own);
+                    t = Collections.unmodifiableSet(union);
+                }
+            }
+            types = t;
+        }
+        return t;
+    }
+
+    int delegateIndex() {
+        return delegate;
+    }
+
+    Object get(int index) {
+        return elements[index];
+    }
+
+    Object innermost() {
+        return elements[0];
+    }
+}
@@ -58,6 +58,7 @@ import java.lang.annotation.Target;
  * <li>{@link javax.servlet.http.HttpSessionListener}
  * <li>{@link javax.servlet.http.HttpSessionAttributeListener}
  * <li>{@link javax.servlet.http.HttpSessionIdListener}
+ * <li>{@link javax.servlet.http.HttpSessionAttributeBatchListener}
  * </ol>
  * 
  * @since Servlet 3.0
@@ -97,6 +97,12 @@ public class Cookie implements Cloneable, Serializable {
 
     private static final String TSPECIALS;
 
+    /*
+     * Lookup table for isToken: true for the US-ASCII characters that may
+     * appear in a cookie name, derived from TSPECIALS.
+     */
+    private static final boolean[] TOKEN_CHARS = new boolean[128];
+
     private static final String LSTRING_FILE =
         "javax.servlet.http.LocalStrings";
 
@@ -109,6 +115,9 @@ public class Cookie implements Cloneable, Serializable {
         } else {
             TSPECIALS = ",; ";
         }
+        for (char c = 0x20; c < 0x7f; c++) {
+            TOKEN_CHARS[c] = TSPECIALS.indexOf(c) == -1;
+        }
     }
     
     //
@@ -159,16 +168,8 @@ public class Cookie implements Cloneable, Serializable {
             throw new IllegalArgumentException(
                     lStrings.getString("err.cookie_name_blank"));
         }
-        if (!isToken(name) ||
-                name.equalsIgnoreCase("Comment") || // rfc2019
-                name.equalsIgnoreCase("Discard") || // 2019++
-                name.equalsIgnoreCase("Domain") ||
-                name.equalsIgnoreCase("Expires") || // (old cookies)
-                name.equalsIgnoreCase("Max-Age") || // rfc2019
-                name.equalsIgnoreCase("Path") ||
-                name.equalsIgnoreCase("Secure") ||
-                name.equalsIgnoreCase("Version") ||
-                name.startsWith("$")) {
+        int len = name.length();
+        if (!isToken(name, 0, len) || isReservedName(name, 0, len)) {
             String errMsg = lStrings.getString("err.cookie_name_is_token");
             Object[] errArgs = new Object[1];
             errArgs[0] = name;
@@ -180,6 +181,35 @@ public class Cookie implements Cloneable, Serializable {
         this.value = value;
     }
 
+    /*
+     * Constructor for names that have already been validated.
+     */
+    private Cookie(String name, String value, boolean validated) {
+        this.name = name;
+        this.value = value;
+    }
+
+    /**
+     * 名前の検証を行わずに、指定された名前と値を持つCookieを生成します。
+     *
+     * <p>このメソッドはリクエストの<code>Cookie</code>ヘッダーを解析する際など、サーブレットコンテナが既に名前を検証している場合に
+     * {@link #Cookie(String, String)}による検証を省略するために使用します。
+     * 名前がnullまたは空である場合や、{@link #Cookie(String, String)}が受け付けない名前である場合の動作は定義されていません。
+     *
+     * @param name 検証済みのCookieの名前
+     *
+     * @param value Cookieの値
+     *
+     * @return 新しい<code>Cookie</code>
+     *
+     * @see #Cookie(String, String)
+     *
+     * @since Servlet 4.0.1
+     */
+    public static Cookie newValidatedCookie(String name, String value) {
+        return new Cookie(name, value, true);
+    }
+
     /**
      * Cookieの目的を説明するコメントを設定します。
      * ブラウザがCookieをユーザに表示する場合に便利です。
@@ -396,19 +426,21 @@ public class Cookie implements Cloneable, Serializable {
     }
 
     /*
-     * Tests a string and returns true if the string counts as a 
-     * reserved token in the Java language.
-     * 
-     * @param value the <code>String</code> to be tested
+     * Tests a range of a character sequence and returns true if it counts
+     * as a token, i.e. contains only characters allowed in a cookie name.
+     * Package private so that CookieCodec can validate names in place.
+     *
+     * @param value the <code>CharSequence</code> to be tested
+     * @param start the index of the first character
+     * @param end the index after the last character
      *
-     * @return <code>true</code> if the <code>String</code> is a reserved
-     * token; <code>false</code> otherwise
+     * @return <code>true</code> if the range is a token;
+     * <code>false</code> otherwise
      */
-    private boolean isToken(String value) {
-        int len = value.length();
-        for (int i = 0; i < len; i++) {
+    static boolean isToken(CharSequence value, int start, int end) {
+        for (int i = start; i < end; i++) {
             char c = value.charAt(i);
-            if (c < 0x20 || c >= 0x7f || TSPECIALS.indexOf(c) != -1) {
+            if (c >= 0x80 || !TOKEN_CHARS[c]) {
                 return false;
             }
         }
@@ -416,6 +448,50 @@ public class Cookie implements Cloneable, Serializable {
         return true;
     }
 
+    /*
+     * Returns true if the non-empty token in [start, end) is reserved by
+     * the cookie protocols: it starts with '$' or is one of the attribute
+     * names, compared without regard to case. The length selects the few
+     * candidates to compare.
+     */
+    static boolean isReservedName(CharSequence name, int start, int end) {
+        if (name.charAt(start) == '$') {
+            return true;
+        }
+        switch (end - start) {
+        case 4:
+            return equalsIgnoreCase(name, start, "Path");
+        case 6:
+            return equalsIgnoreCase(name, start, "Domain") ||
+                equalsIgnoreCase(name, start, "Secure");
+        case 7:
+            return equalsIgnoreCase(name, start, "Comment") || // rfc2019
+                equalsIgnoreCase(name, start, "Discard") ||    // 2019++
+                equalsIgnoreCase(name, start, "Expires") ||    // (old cookies)
+                equalsIgnoreCase(name, start, "Max-Age") ||    // rfc2019
+                equalsIgnoreCase(name, start, "Version");
+        default:
+            return false;
+        }
+    }
+
+    /*
+     * ASCII case-insensitive comparison of the token starting at start
+     * with the reserved name, whose length the caller has already matched.
+     */
+    private static boolean equalsIgnoreCase(CharSequence s, int start,
+                                            String reserved) {
+        int len = reserved.length();
+        for (int i = 0; i < len; i++) {
+            char c = s.charAt(start + i);
+            char r = reserved.charAt(i);
+            if (c != r && (c | 0x20) != (r | 0x20)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * 標準の <code>java.lang.Object.clone</code> をオーバーライドしてこのCookieのコピーを返します。
      */
@@ -0,0 +1,473 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package javax.servlet.http;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * リクエストの<code>Cookie</code>ヘッダーの解析と、レスポンスの<code>Set-Cookie</code>ヘッダーの値の生成を行います。
+ *
+ * <p>解析は正規表現を使用せずにヘッダーを一度走査するだけで行われます。
+ * ヘッダーは<a href="http://www.ietf.org/rfc/rfc6265.txt">RFC 6265</a>の形式、つまり;文字で区切られた<i>name=value</i>のペアとして扱われ、
+ * 前後の空白は取り除かれます。値は引用符も含めてそのまま保持されます。
+ * {@link Cookie#Cookie(String, String)}が受け付けない名前のペア(<code>$Version</code>などの属性を含む)は無視されます。
+ *
+ * <p>{@link #parseLazily}は各Cookieの位置だけを記録し、{@link LazyCookies#get}で検索されたCookieだけを{@link Cookie}のオブジェクトにします。
+ *
+ * <p><code>Set-Cookie</code>ヘッダーの値は呼び出し側が用意した<code>StringBuilder</code>もしくは<code>ByteBuffer</code>に直接書き込まれます。
+ *
+ * @see Cookie
+ * @see HttpServletRequest#getCookies
+ * @see HttpServletResponse#addCookie
+ *
+ * @since Servlet 4.0.1
+ */
+public final class CookieCodec {
+
+    private static final Cookie[] NO_COOKIES = new Cookie[0];
+
+    /* Attribute prefixes for format(Cookie, ByteBuffer), in ISO-8859-1. */
+    private static final byte[] MAX_AGE = ascii("; Max-Age=");
+    private static final byte[] EXPIRES = ascii("; Expires=");
+    private static final byte[] DOMAIN = ascii("; Domain=");
+    private static final byte[] PATH = ascii("; Path=");
+    private static final byte[] SECURE = ascii("; Secure");
+    private static final byte[] HTTP_ONLY = ascii("; HttpOnly");
+    private static final byte[] COMMENT = ascii("; Comment=");
+    private static final byte[] VERSION_1 = ascii("; Version=1");
+
+    private CookieCodec() { }
+
+
+    /**
+     * <code>Cookie</code>リクエストヘッダーの値を解析し、含まれているCookieを現れた順に返します。
+     *
+     * @param header <code>Cookie</code>ヘッダーの値
+     *
+     * @return 解析された<code>Cookie</code>の配列。Cookieがない場合は空の配列
+     *
+     * @exception IllegalArgumentException <code>header</code>がnullの場合
+     */
+    public static Cookie[] parse(CharSequence header) {
+        return parseLazily(header).toArray();
+    }
+
+
+    /**
+     * <code>Cookie</code>リクエストヘッダーの値を解析し、各Cookieの位置を記録した{@link LazyCookies}を返します。
+     * この時点では{@link Cookie}のオブジェクトや部分文字列は生成されません。
+     *
+     * @param header <code>Cookie</code>ヘッダーの値
+     *
+     * @return 解析されたCookieを参照する{@link LazyCookies}
+     *
+     * @exception IllegalArgumentException <code>header</code>がnullの場合
+     */
+    public static LazyCookies parseLazily(CharSequence header) {
+        if (header == null) {
+            throw new IllegalArgumentException();
+        }
+        LazyCookies cookies = new LazyCookies(header);
+        int len = header.length();
+        int i = 0;
+        while (i < len) {
+            // name
+            i = skipWhitespace(header, i, len);
+            int nameStart = i;
+            while (i < len) {
+                char c = header.charAt(i);
+                if (c == '=' || c == ';') {
+                    break;
+                }
+                i++;
+            }
+            int nameEnd = trimWhitespace(header, nameStart, i);
+
+            // value
+            int valueStart = i;
+            int valueEnd = i;
+            if (i < len && header.charAt(i) == '=') {
+                i = skipWhitespace(header, i + 1, len);
+                valueStart = i;
+                while (i < len && header.charAt(i) != ';') {
+                    i++;
+                }
+                valueEnd = trimWhitespace(header, valueStart, i);
+            }
+            i++;    // skip ';'
+
+            if (nameEnd > nameStart
+                    && Cookie.isToken(header, nameStart, nameEnd)
+                    && !Cookie.isReservedName(header, nameStart, nameEnd)) {
+                cookies.add(nameStart, nameEnd, valueStart, valueEnd);
+            }
+        }
+        return cookies;
+    }
+
+
+    private static int skipWhitespace(CharSequence s, int i, int len) {
+        while (i < len && (s.charAt(i) == ' ' || s.charAt(i) == '\t')) {
+            i++;
+        }
+        return i;
+    }
+
+
+    private static int trimWhitespace(CharSequence s, int start, int end) {
+        while (end > start
+                && (s.charAt(end - 1) == ' ' || s.charAt(end - 1) == '\t')) {
+            end--;
+        }
+        return end;
+    }
+
+
+    /**
+     * 指定したCookieの<code>Set-Cookie</code>レスポンスヘッダーの値を<code>StringBuilder</code>に追加します。
+     *
+     * <p>値は<i>name=value</i>に続けて、設定されている場合は<code>Max-Age</code>と<code>Expires</code>、<code>Domain</code>、<code>Path</code>、
+     * <code>Secure</code>、<code>HttpOnly</code>の属性を含みます。
+     * バージョンが1のCookieの場合は<code>Comment</code>と<code>Version</code>の属性も含みます。
+     *
+     * @param cookie 書き込む<code>Cookie</code>
+     *
+     * @param sb 値を追加する<code>StringBuilder</code>
+     *
+     * @return <code>sb</code>
+     */
+    public static StringBuilder format(Cookie cookie, StringBuilder sb) {
+        String value = cookie.getValue();
+        sb.append(cookie.getName()).append('=');
+        if (value != null) {
+            sb.append(value);
+        }
+        int maxAge = cookie.getMaxAge();
+        if (maxAge >= 0) {
+            sb.append("; Max-Age=").append(maxAge);
+            sb.append("; Expires=").append(formatExpires(maxAge));
+        }
+        appendAttribute(sb, "; Domain=", cookie.getDomain());
+        appendAttribute(sb, "; Path=", cookie.getPath());
+        if (cookie.getSecure()) {
+            sb.append("; Secure");
+        }
+        if (cookie.isHttpOnly()) {
+            sb.append("; HttpOnly");
+        }
+        if (cookie.getVersion() == 1) {
+            appendAttribute(sb, "; Comment=", cookie.getComment());
+            sb.append("; Version=1");
+        }
+        return sb;
+    }
+
+
+    private static void appendAttribute(StringBuilder sb, String attribute,
+                                        String value) {
+        if (value != null) {
+            sb.append(attribute).append(value);
+        }
+    }
+
+
+    /**
+     * 指定したCookieの<code>Set-Cookie</code>レスポンスヘッダーの値を<code>ByteBuffer</code>の現在の位置から書き込みます。
+     * 内容は{@link #format(Cookie, StringBuilder)}と同じで、各文字はISO-8859-1の1バイトとして書き込まれます。
+     *
+     * @param cookie 書き込む<code>Cookie</code>
+     *
+     * @param buffer 値を書き込む<code>ByteBuffer</code>
+     *
+     * @return <code>buffer</code>
+     *
+     * @exception IllegalArgumentException 値にISO-8859-1で表せない文字が含まれている場合
+     *
+     * @exception java.nio.BufferOverflowException <code>buffer</code>の残りの容量が足りない場合
+     */
+    public static ByteBuffer format(Cookie cookie, ByteBuffer buffer) {
+        put(buffer, cookie.getName());
+        buffer.put((byte) '=');
+        String value = cookie.getValue();
+        if (value != null) {
+            put(buffer, value);
+        }
+        int maxAge = cookie.getMaxAge();
+        if (maxAge >= 0) {
+            buffer.put(MAX_AGE);
+            putDigits(buffer, maxAge);
+            buffer.put(EXPIRES);
+            put(buffer, formatExpires(maxAge));
+        }
+        putAttribute(buffer, DOMAIN, cookie.getDomain());
+        putAttribute(buffer, PATH, cookie.getPath());
+        if (cookie.getSecure()) {
+            buffer.put(SECURE);
+        }
+        if (cookie.isHttpOnly()) {
+            buffer.put(HTTP_ONLY);
+        }
+        if (cookie.getVersion() == 1) {
+            putAttribute(buffer, COMMENT, cookie.getComment());
+            buffer.put(VERSION_1);
+        }
+        return buffer;
+    }
+
+
+    private static void putAttribute(ByteBuffer buffer, byte[] attribute,
+                                     String value) {
+        if (value != null) {
+            buffer.put(attribute);
+            put(buffer, value);
+        }
+    }
+
+
+    private static void put(ByteBuffer buffer, String s) {
+        int len = s.length();
+        for (int i = 0; i < len; i++) {
+            char c = s.charAt(i);
+            if (c > 0xff) {
+                throw new IllegalArgumentException(s);
+            }
+            buffer.put((byte) c);
+        }
+    }
+
+
+    /*
+     * Writes the decimal digits of a non-negative int without going through
+     * a String, filling them in from the last digit with absolute puts.
+     */
+    private static void putDigits(ByteBuffer buffer, int n) {
+        int len = 1;
+        for (int q = n / 10; q != 0; q /= 10) {
+            len++;
+        }
+        if (buffer.remaining() < len) {
+            throw new BufferOverflowException();
+        }
+        int pos = buffer.position();
+        for (int i = pos + len - 1; i >= pos; i--) {
+            buffer.put(i, (byte) ('0' + n % 10));
+            n /= 10;
+        }
+        buffer.position(pos + len);
+    }
+
+
+    private static byte[] ascii(String s) {
+        byte[] b = new byte[s.length()];
+        for (int i = 0; i < b.length; i++) {
+            b[i] = (byte) s.charAt(i);
+        }
+        return b;
+    }
+
+
+    private static String formatExpires(int maxAge) {
+        long expires = (maxAge == 0)
+            ? 10000L    // in the past, the cookie is to be deleted
+            : System.currentTimeMillis() + maxAge * 1000L;
+        return HttpDates.format(expires);
+    }
+
+
+    /**
+     * {@link CookieCodec#parseLazily}によって解析されたCookieです。
+     *
+     * <p>各Cookieはヘッダー内の位置として保持され、{@link #get}などで要求されたときに初めて{@link Cookie}のオブジェクトが生成されます。
+     * 生成された<code>Cookie</code>はキャッシュされ、同じCookieに対しては同じオブジェクトが返されます。
+     *
+     * <p>このクラスはスレッドセーフではありません。
+     *
+     * @since Servlet 4.0.1
+     */
+    public static final class LazyCookies {
+
+        // four offsets per cookie: name start/end, value start/end
+        private static final int SLOTS = 4;
+
+        private final CharSequence header;
+        private int[] ranges = new int[SLOTS * 8];
+        private int[] hashes = new int[8];
+        private Cookie[] cookies;
+        private int count;
+
+        LazyCookies(CharSequence header) {
+            this.header = header;
+        }
+
+        void add(int nameStart, int nameEnd, int valueStart, int valueEnd) {
+            if (count == hashes.length) {
+                hashes = Arrays.copyOf(hashes, count * 2);
+                ranges = Arrays.copyOf(ranges, count * 2 * SLOTS);
+            }
+            int base = count * SLOTS;
+            ranges[base] = nameStart;
+            ranges[base + 1] = nameEnd;
+            ranges[base + 2] = valueStart;
+            ranges[base + 3] = valueEnd;
+            // same as String.hashCode, so that get can compare hashes
+            int h = 0;
+            for (int i = nameStart; i < nameEnd; i++) {
+                h = 31 * h + header.charAt(i);
+            }
+            hashes[count++] = h;
+        }
+
+        /**
+         * Cookieの数を返します。
+         *
+         * @return Cookieの数
+         */
+        public int size() {
+            return count;
+        }
+
+        /**
+         * 指定した名前を持つ最初のCookieを返します。
+         * 名前は大文字と小文字が区別されます。
+         *
+         * <p>名前の比較はヘッダー内の位置に対して行われるため、一致しないCookieのためにオブジェクトが生成されることはありません。
+         *
+         * @param name Cookieの名前
+         *
+         * @return 指定した名前を持つ<code>Cookie</code>、存在しない場合は<code>null</code>
+         */
+        public Cookie get(String name) {
+            int index = indexOf(name);
+            return (index < 0) ? null : get(index);
+        }
+
+        /**
+         * 指定した名前を持つ最初のCookieの値を返します。
+         * {@link Cookie}のオブジェクトは生成されません。
+         *
+         * @param name Cookieの名前
+         *
+         * @return 指定した名前を持つCookieの値、存在しない場合は<code>null</code>
+         */
+        public String getValue(String name) {
+            int index = indexOf(name);
+            if (index < 0) {
+                return null;
+            }
+            if (cookies != null && cookies[index] != null) {
+                return cookies[index].getValue();
+            }
+            int base = index * SLOTS;
+            return header.subSequence(ranges[base + 2], ranges[base + 3])
+                .toString();
+        }
+
+        /**
+         * 指定した位置のCookieを返します。
+         *
+         * @param index ヘッダー内に現れた順序でのCookieの位置
+         *
+         * @return 指定した位置の<code>Cookie</code>
+         *
+         * @exception IndexOutOfBoundsException <code>index</code>が範囲外の場合
+         */
+        public Cookie get(int index) {
+            if (index < 0 || index >= count) {
+                throw new IndexOutOfBoundsException();
+            }
+            if (cookies == null) {
+                cookies = new Cookie[count];
+            }
+            Cookie cookie = cookies[index];
+            if (cookie == null) {
+                int base = index * SLOTS;
+                cookie = Cookie.newValidatedCookie(
+                    header.subSequence(ranges[base], ranges[base + 1])
+                        .toString(),
+                    header.subSequence(ranges[base + 2], ranges[base + 3])
+                        .toString());
+                cookies[index] = cookie;
+            }
+            return cookie;
+        }
+
+        /**
+         * すべてのCookieを現れた順に格納した新しい配列を返します。
+         *
+         * @return <code>Cookie</code>の配列。Cookieがない場合は空の配列
+         */
+        public Cookie[] toArray() {
+            if (count == 0) {
+                return NO_COOKIES;
+            }
+            Cookie[] result = new Cookie[count];
+            for (int i = 0; i < count; i++) {
+                result[i] = get(i);
+            }
+            return result;
+        }
+
+        private int indexOf(String name) {
+            int h = name.hashCode();
+            int len = name.length();
+            for (int i = 0; i < count; i++) {
+                if (hashes[i] != h) {
+                    continue;
+                }
+                int base = i * SLOTS;
+                int start = ranges[base];
+                if (ranges[base + 1] - start != len) {
+                    continue;
+                }
+                int j = 0;
+                while (j < len && header.charAt(start + j) == name.charAt(j)) {
+                    j++;
+                }
+                if (j == len) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,484 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package javax.servlet.http;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.servlet.DispatcherType;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.Servlet;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+/**
+ * フィルターのマッピングから{@link FilterChain}を組み立て、{@link HttpServletMapping}のパターンと{@link DispatcherType}ごとにキャッシュします。
+ *
+ * <p>マッピングは{@link javax.servlet.FilterRegistration}と同じ意味で登録され、
+ * URLパターンによるマッピングがサーブレット名によるマッピングより先に、それぞれ登録順に適用されます。
+ * キャッシュは登録が変更された場合にのみ破棄されます。
+ *
+ * <p>返される{@link FilterChain}は不変で、フィルターの配列とその位置だけを保持します。
+ * そのため、キャッシュされたチェーンは呼び出しごとにオブジェクトを生成せず、複数のスレッドや再入的なディスパッチで同時に使用できます。
+ *
+ * <p>フィルターのURLパターンはサーブレットのマッピングではなくリクエストのパスに対して照合されます。
+ * サーブレットのマッピングに一致するどのパスに対しても同じフィルターが選ばれる場合、チェーンはマッピングごとに1つだけ作られます。
+ * デフォルトのマッピングに{@code /*}以外のフィルターのURLパターンがかかる場合のように、パスによって選ばれるフィルターが異なる場合は、
+ * チェーンはパスごとに一定の数までキャッシュされ、それを超えると呼び出しごとに作られます。
+ *
+ * @see ServletMappingMatcher
+ *
+ * @since Servlet 4.0.1
+ */
+public final class FilterChainFactory {
+
+    private static final String LSTRING_FILE =
+        "javax.servlet.http.LocalStrings";
+    private static final ResourceBundle lStrings =
+        ResourceBundle.getBundle(LSTRING_FILE);
+
+    /*
+     * Upper bound on the number of per-path chains kept for one mapping
+     * whose filters depend on the request path.
+     */
+    private static final int MAX_PATH_CHAINS = 1024;
+
+    private static final DispatcherType[] DISPATCHER_TYPES =
+        DispatcherType.values();
+
+    private static final EnumSet<DispatcherType> DEFAULT_DISPATCHER_TYPES =
+        EnumSet.of(DispatcherType.REQUEST);
+
+    /*
+     * A registered filter mapping; exactly one of urlPatterns and
+     * servletNames is non-null.
+     */
+    private static final class FilterMapping {
+
+        final Filter filter;
+        final EnumSet<DispatcherType> dispatcherTypes;
+        final String[] urlPatterns;
+        final String[] servletNames;
+
+        FilterMapping(Filter filter, EnumSet<DispatcherType> dispatcherTypes,
+                      String[] urlPatterns, String[] servletNames) {
+            this.filter = filter;
+            this.dispatcherTypes = (dispatcherTypes == null) ?
+                DEFAULT_DISPATCHER_TYPES : EnumSet.copyOf(dispatcherTypes);
+            this.urlPatterns = urlPatterns;
+            this.servletNames = servletNames;
+        }
+    }
+
+    /*
+     * Registrations in application order together with the chains built
+     * from them. Replaced as a whole whenever a mapping is added so that
+     * lookups never lock and never see a half-updated cache.
+     */
+    private static final class State {
+
+        final FilterMapping[] mappings;
+        // indexed by DispatcherType ordinal, keyed by servlet mapping pattern
+        final ConcurrentMap<String, Entry>[] entries;
+        // indexed by DispatcherType ordinal, keyed by servlet name
+        final ConcurrentMap<String, Entry>[] named;
+
+        State(FilterMapping[] mappings) {
+            this.mappings = mappings;
+            this.entries = newMaps();
+            this.named = newMaps();
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private static ConcurrentMap<String, Entry>[] newMaps() {
+            ConcurrentMap<String, Entry>[] maps =
+                new ConcurrentMap[DISPATCHER_TYPES.length];
+            for (int i = 0; i < maps.length; i++) {
+                maps[i] = new ConcurrentHashMap<>();
+            }
+            return maps;
+        }
+    }
+
+    /*
+     * Cached chain(s) for one servlet mapping pattern and dispatcher type.
+     * chain is null when the selected filters depend on the request path,
+     * in which case chains are kept per path in byPath.
+     */
+    private static final class Entry {
+
+        final String servletName;
+        final Servlet servlet;
+        final Chain chain;
+        final ConcurrentMap<String, Chain> byPath;
+
+        Entry(String servletName, Servlet servlet, Chain chain) {
+            this.servletName = servletName;
+            this.servlet = servlet;
+            this.chain = chain;
+            this.byPath = (chain == null) ? new ConcurrentHashMap<>() : null;
+        }
+    }
+
+    /*
+     * An immutable chain: one Link per position, the last one invoking
+     * the servlet.
+     */
+    private static final class Chain {
+
+        final Filter[] filters;
+        final Servlet servlet;
+        final Link[] links;
+
+        Chain(Filter[] filters, Servlet servlet) {
+            this.filters = filters;
+            this.servlet = servlet;
+            this.links = new Link[filters.length + 1];
+            for (int i = 0; i < links.length; i++) {
+                links[i] = new Link(this, i);
+            }
+        }
+    }
+
+    private static final class Link implements FilterChain {
+
+        private final Chain chain;
+        private final int index;
+
+        Link(Chain chain, int index) {
+            this.chain = chain;
+            this.index = index;
+        }
+
+        @Override
+        public void doFilter(ServletRequest request, ServletResponse response)
+                throws IOException, ServletException {
+            Filter[] filters = chain.filters;
+            if (index < filters.length) {
+                filters[index].doFilter(request, response, chain.links[index + 1]);
+            } else {
+                chain.servlet.service(request, response);
+            }
+        }
+    }
+
+    private final List<FilterMapping> before = new ArrayList<>();
+    private final List<FilterMapping> after = new ArrayList<>();
+    private volatile State state = new State(new FilterMapping[0]);
+
+    /**
+     * URLパターンによるフィルターのマッピングを追加します。
+     *
+     * @param filter マッピングされるフィルター
+     * @param dispatcherTypes フィルターを適用するディスパッチャーの種類。nullの場合は{@link DispatcherType#REQUEST}
+     * @param isMatchAfter このマッピングをすでに追加されたマッピングの後に照合する場合はtrue、前に照合する場合はfalse
+     * @param urlPatterns フィルターのマッピングのURLパターン
+     *
+     * @throws IllegalArgumentException {@code urlPatterns}がnullまたは空の場合
+     *
+     * @see javax.servlet.FilterRegistration#addMappingForUrlPatterns
+     */
+    public void addMappingForUrlPatterns(Filter filter,
+            EnumSet<DispatcherType> dispatcherTypes, boolean isMatchAfter,
+            String... urlPatterns) {
+        if (urlPatterns == null || urlPatterns.length == 0) {
+            throw new IllegalArgumentException(
+                lStrings.getString("err.filter.no_url_patterns"));
+        }
+        addMapping(new FilterMapping(filter, dispatcherTypes,
+            urlPatterns.clone(), null), isMatchAfter);
+    }
+
+    /**
+     * サーブレット名によるフィルターのマッピングを追加します。
+     *
+     * @param filter マッピングされるフィルター
+     * @param dispatcherTypes フィルターを適用するディスパッチャーの種類。nullの場合は{@link DispatcherType#REQUEST}
+     * @param isMatchAfter このマッピングをすでに追加されたマッピングの後に照合する場合はtrue、前に照合する場合はfalse
+     * @param servletNames フィルターのマッピングのサーブレット名
+     *
+     * @throws IllegalArgumentException {@code servletNames}がnullまたは空の場合
+     *
+     * @see javax.servlet.FilterRegistration#addMappingForServletNames
+     */
+    public void addMappingForServletNames(Filter filter,
+            EnumSet<DispatcherType> dispatcherTypes, boolean isMatchAfter,
+            String... servletNames) {
+        if (servletNames == null || servletNames.length == 0) {
+            throw new IllegalArgumentException(
+                lStrings.getString("err.filter.no_servlet_names"));
+        }
+        addMapping(new FilterMapping(filter, dispatcherTypes,
+            null, servletNames.clone()), isMatchAfter);
+    }
+
+    private synchronized void addMapping(FilterMapping mapping,
+                                         boolean isMatchAfter) {
+        if (mapping.filter == null) {
+            throw new IllegalArgumentException(
+                lStrings.getString("err.filter.null"));
+        }
+        if (isMatchAfter) {
+            after.add(mapping);
+        } else {
+            before.add(mapping);
+        }
+        List<FilterMapping> all = new ArrayList<>(before.size() + after.size());
+        all.addAll(before);
+        all.addAll(after);
+        state = new State(all.toArray(new FilterMapping[all.size()]));
+    }
+
+    /**
+     * キャッシュされたチェーンを破棄します。
+     *
+     * <p>登録されたフィルターやサーブレットのインスタンスを入れ替えた場合に呼び出します。
+     * マッピングを追加した場合は自動的に破棄されるため、呼び出す必要はありません。
+     */
+    public synchronized void clear() {
+        state = new State(state.mappings);
+    }
+
+    /**
+     * 与えられたマッピングとディスパッチャーの種類に対応する{@link FilterChain}を返します。
+     *
+     * <p>返されたチェーンの最後では{@code servlet}の{@link Servlet#service}が呼び出されます。
+     *
+     * @param mapping リクエストの{@link HttpServletMapping}
+     * @param path コンテキスト相対のリクエストのパス、つまり{@code servletPath + pathInfo}
+     * @param dispatcherType ディスパッチャーの種類
+     * @param servlet マッピングされたサーブレット
+     *
+     * @return フィルターの{@link FilterChain}
+     */
+    public FilterChain getFilterChain(HttpServletMapping mapping, String path,
+            DispatcherType dispatcherType, Servlet servlet) {
+        State s = state;
+        ConcurrentMap<String, Entry> entries = s.entries[dispatcherType.ordinal()];
+        String pattern = mapping.getPattern();
+        String servletName = mapping.getServletName();
+        Entry entry = entries.get(pattern);
+        if (entry == null || entry.servlet != servlet
+                || !entry.servletName.equals(servletName)) {
+            entry = new Entry(servletName, servlet,
+                buildIndependent(s.mappings, mapping, path, dispatcherType, servlet));
+            entries.put(pattern, entry);
+        }
+        if (entry.chain != null) {
+            return entry.chain.links[0];
+        }
+        Chain chain = entry.byPath.get(path);
+        if (chain == null) {
+            chain = build(s.mappings, path, servletName, dispatcherType, servlet);
+            if (entry.byPath.size() < MAX_PATH_CHAINS) {
+                entry.byPath.put(path, chain);
+            }
+        }
+        return chain.links[0];
+    }
+
+    /**
+     * 名前付きディスパッチャーによる呼び出しのための{@link FilterChain}を返します。
+     *
+     * <p>この場合はサーブレット名によるマッピングだけが適用されます。
+     *
+     * @param servletName サーブレット名
+     * @param dispatcherType ディスパッチャーの種類
+     * @param servlet サーブレット
+     *
+     * @return フィルターの{@link FilterChain}
+     */
+    public FilterChain getFilterChain(String servletName,
+            DispatcherType dispatcherType, Servlet servlet) {
+        State s = state;
+        ConcurrentMap<String, Entry> named = s.named[dispatcherType.ordinal()];
+        Entry entry = named.get(servletName);
+        if (entry == null || entry.servlet != servlet) {
+            entry = new Entry(servletName, servlet,
+                build(s.mappings, null, servletName, dispatcherType, servlet));
+            named.put(servletName, entry);
+        }
+        return entry.chain.links[0];
+    }
+
+    /*
+     * Builds the chain for a servlet mapping if every path it can match
+     * selects the same filters, otherwise returns null.
+     */
+    private static Chain buildIndependent(FilterMapping[] mappings,
+            HttpServletMapping mapping, String path,
+            DispatcherType dispatcherType, Servlet servlet) {
+        List<Filter> filters = new ArrayList<>();
+        for (FilterMapping m : mappings) {
+            if (m.urlPatterns == null || !m.dispatcherTypes.contains(dispatcherType)) {
+                continue;
+            }
+            boolean all = false;
+            for (String urlPattern : m.urlPatterns) {
+                Coverage c = coverage(urlPattern, mapping, path);
+                if (c == Coverage.SOME) {
+                    return null;
+                }
+                all |= (c == Coverage.ALL);
+            }
+            if (all) {
+                filters.add(m.filter);
+            }
+        }
+        addServletNameFilters(mappings, mapping.getServletName(),
+                              dispatcherType, filters);
+        return new Chain(filters.toArray(new Filter[filters.size()]), servlet);
+    }
+
+    private static Chain build(FilterMapping[] mappings, String path,
+            String servletName, DispatcherType dispatcherType, Servlet servlet) {
+        List<Filter> filters = new ArrayList<>();
+        if (path != null) {
+            for (FilterMapping m : mappings) {
+                if (m.urlPatterns != null
+                        && m.dispatcherTypes.contains(dispatcherType)
+                        && matchesAny(m.urlPatterns, path)) {
+                    filters.add(m.filter);
+                }
+            }
+        }
+        addServletNameFilters(mappings, servletName, dispatcherType, filters);
+        return new Chain(filters.toArray(new Filter[filters.size()]), servlet);
+    }
+
+    private static void addServletNameFilters(FilterMapping[] mappings,
+            String servletName, DispatcherType dispatcherType,
+            List<Filter> filters) {
+        for (FilterMapping m : mappings) {
+            if (m.servletNames != null
+                    && m.dispatcherTypes.contains(dispatcherType)
+                    && (Arrays.asList(m.servletNames).contains(servletName)
+                        || Arrays.asList(m.servletNames).contains("*"))) {
+                filters.add(m.filter);
+            }
+        }
+    }
+
+    private static boolean matchesAny(String[] urlPatterns, String path) {
+        for (String urlPattern : urlPatterns) {
+            if (matches(urlPattern, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * Matches a filter URL pattern against a context-relative path using
+     * the servlet mapping rules.
+     */
+    private static boolean matches(String urlPattern, String path) {
+        if (urlPattern.equals("/*") || urlPattern.equals("/")) {
+            return true;
+        }
+        if (urlPattern.isEmpty()) {
+            return path.isEmpty() || path.equals("/");
+        }
+        if (urlPattern.startsWith("*.")) {
+            int dot = path.lastIndexOf('.');
+            return dot > path.lastIndexOf('/')
+                && path.length() - dot - 1 == urlPattern.length() - 2
+                && path.regionMatches(dot + 1, urlPattern, 2, urlPattern.length() - 2);
+        }
+        if (urlPattern.endsWith("/*")) {
+            int length = urlPattern.length() - 2;
+            return path.regionMatches(0, urlPattern, 0, length)
+                && (path.length() == length || path.charAt(length) == '/');
+        }
+        return urlPattern.equals(path);
+    }
+
+    private enum Coverage { ALL, NONE, SOME }
+
+    /*
+     * Whether a filter URL pattern matches all, none or only some of the
+     * paths that can be mapped to the servlet through the given mapping.
+     */
+    private static Coverage coverage(String urlPattern,
+            HttpServletMapping mapping, String path) {
+        if (urlPattern.equals("/*") || urlPattern.equals("/")) {
+            return Coverage.ALL;
+        }
+        String pattern = mapping.getPattern();
+        switch (mapping.getMappingMatch()) {
+        case PATH: {
+            String prefix = pattern.substring(0, pattern.length() - 2);
+            if (urlPattern.endsWith("/*")) {
+                String q = urlPattern.substring(0, urlPattern.length() - 2);
+                if (prefix.equals(q) || prefix.startsWith(q + "/")) {
+                    return Coverage.ALL;
+                }
+                return q.startsWith(prefix + "/") ? Coverage.SOME : Coverage.NONE;
+            }
+            if (urlPattern.startsWith("*.")) {
+                return Coverage.SOME;
+            }
+            return (urlPattern.equals(prefix) || urlPattern.startsWith(prefix + "/")) ?
+                Coverage.SOME : Coverage.NONE;
+        }
+        case EXTENSION:
+            if (urlPattern.startsWith("*.")) {
+                return urlPattern.equals(pattern) ? Coverage.ALL : Coverage.NONE;
+            }
+            if (urlPattern.endsWith("/*")) {
+                return Coverage.SOME;
+            }
+            return matches(pattern, urlPattern) ? Coverage.SOME : Coverage.NONE;
+        case DEFAULT:
+            return Coverage.SOME;
+        default:
+            // EXACT and CONTEXT_ROOT map a single path
+            return matches(urlPattern, path) ? Coverage.ALL : Coverage.NONE;
+        }
+    }
+}
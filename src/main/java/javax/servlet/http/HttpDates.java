@@ -0,0 +1,351 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package javax.servlet.http;
+
+/**
+ * HTTPの日付ヘッダーの値の生成と解析を行います。
+ *
+ * <p>生成される値は<a href="http://www.ietf.org/rfc/rfc7231.txt">RFC 7231</a>の推奨する<code>IMF-fixdate</code>形式
+ * (<code>Sun, 06 Nov 1994 08:49:37 GMT</code>)です。
+ * 値は秒単位でキャッシュされ、<code>Date</code>ヘッダーに使う現在の日時と、<code>Last-Modified</code>のように繰り返し使われる日時は、
+ * 同じ秒の間は同じ文字列が返されます。キャッシュはロックを使用しません。
+ *
+ * <p>解析はIMF-fixdate(RFC 1123)、廃止されたRFC 850形式(<code>Sunday, 06-Nov-94 08:49:37 GMT</code>)、
+ * ANSI Cの<code>asctime()</code>形式(<code>Sun Nov  6 08:49:37 1994</code>)を受け付け、オブジェクトを生成しません。
+ *
+ * <p>このクラスのメソッドはスレッドセーフです。
+ *
+ * @see HttpServletRequest#getDateHeader
+ * @see HttpServletResponse#setDateHeader
+ *
+ * @since Servlet 4.0.1
+ */
+public final class HttpDates {
+
+    private static final String[] DAYS =
+        { "Sun", "Mon", "Tue", "Wed", "Thu", "Fri", "Sat" };
+
+    private static final String[] MONTHS =
+        { "Jan", "Feb", "Mar", "Apr", "May", "Jun",
+          "Jul", "Aug", "Sep", "Oct", "Nov", "Dec" };
+
+    /*
+     * A formatted value for one epoch second. Immutable, so entries can be
+     * published through plain and volatile fields without locking; a lost
+     * update only costs another formatting.
+     */
+    private static final class Entry {
+
+        final long second;
+        final String text;
+
+        Entry(long second, String text) {
+            this.second = second;
+            this.text = text;
+        }
+    }
+
+    private static final int CACHE_SIZE = 16;
+
+    private static volatile Entry current;
+
+    // direct-mapped by second
+    private static final Entry[] cache = new Entry[CACHE_SIZE];
+
+    private HttpDates() { }
+
+    /**
+     * 現在の日時をIMF-fixdate形式で返します。
+     *
+     * <p>同じ秒の間の呼び出しは同じ文字列を返します。
+     *
+     * @return <code>Date</code>ヘッダーの値
+     */
+    public static String formatNow() {
+        long second = Math.floorDiv(System.currentTimeMillis(), 1000L);
+        Entry e = current;
+        if (e == null || e.second != second) {
+            e = new Entry(second, formatSeconds(second));
+            current = e;
+        }
+        return e.text;
+    }
+
+    /**
+     * 与えられた日時をIMF-fixdate形式で返します。
+     *
+     * <p>ミリ秒は切り捨てられます。最近使われた日時は秒ごとにキャッシュされ、同じ文字列が返されます。
+     *
+     * @param millis 1970 年 1 月 1 日 00:00:00 GMT からのミリ秒数
+     *
+     * @return 日付ヘッダーの値
+     *
+     * @throws IllegalArgumentException 年が0から9999の範囲にない場合
+     */
+    public static String format(long millis) {
+        long second = Math.floorDiv(millis, 1000L);
+        int slot = (int) ((second ^ (second >>> 32)) * 0x9E3779B9L >>> 28) & (CACHE_SIZE - 1);
+        Entry e = cache[slot];
+        if (e == null || e.second != second) {
+            e = new Entry(second, formatSeconds(second));
+            cache[slot] = e;
+        }
+        return e.text;
+    }
+
+    private static String formatSeconds(long second) {
+        long days = Math.floorDiv(second, 86400L);
+        int secondOfDay = (int) Math.floorMod(second, 86400L);
+
+        // civil date from days since the epoch, proleptic Gregorian
+        long z = days + 719468;
+        long era = Math.floorDiv(z, 146097L);
+        int doe = (int) (z - era * 146097);
+        int yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        int doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        int mp = (5 * doy + 2) / 153;
+        int day = doy - (153 * mp + 2) / 5 + 1;
+        int month = (mp < 10) ? mp + 3 : mp - 9;
+        long year = yoe + era * 400 + ((month <= 2) ? 1 : 0);
+        if (year < 0 || year > 9999) {
+            throw new IllegalArgumentException("Year out of range: " + year);
+        }
+
+        char[] buf = new char[29];
+        String dayName = DAYS[(int) Math.floorMod(days + 4, 7L)];
+        String monthName = MONTHS[month - 1];
+        buf[0] = dayName.charAt(0);
+        buf[1] = dayName.charAt(1);
+        buf[2] = dayName.charAt(2);
+        buf[3] = ',';
+        buf[4] = ' ';
+        put2(buf, 5, day);
+        buf[7] = ' ';
+        buf[8] = monthName.charAt(0);
+        buf[9] = monthName.charAt(1);
+        buf[10] = monthName.charAt(2);
+        buf[11] = ' ';
+        put2(buf, 12, (int) (year / 100));
+        put2(buf, 14, (int) (year % 100));
+        buf[16] = ' ';
+        put2(buf, 17, secondOfDay / 3600);
+        buf[19] = ':';
+        put2(buf, 20, secondOfDay / 60 % 60);
+        buf[22] = ':';
+        put2(buf, 23, secondOfDay % 60);
+        buf[25] = ' ';
+        buf[26] = 'G';
+        buf[27] = 'M';
+        buf[28] = 'T';
+        return new String(buf);
+    }
+
+    private static void put2(char[] buf, int offset, int value) {
+        buf[offset] = (char) ('0' + value / 10);
+        buf[offset + 1] = (char) ('0' + value % 10);
+    }
+
+    /**
+     * 日付ヘッダーの値を解析します。
+     *
+     * <p>IMF-fixdate(RFC 1123)、RFC 850、<code>asctime()</code>の各形式を受け付けます。
+     * 曜日の名前は検査しません。
+     * RFC 850形式の2桁の年は、現在から50年より先にならない最も近い年として解釈されます。
+     *
+     * @param value 日付ヘッダーの値
+     *
+     * @return 1970 年 1 月 1 日 00:00:00 GMT からのミリ秒数、値がnullか解析できない場合は-1
+     */
+    public static long parse(CharSequence value) {
+        if (value == null) {
+            return -1;
+        }
+        int length = value.length();
+        int comma = -1;
+        for (int i = 0; i < length && i < 10; i++) {
+            if (value.charAt(i) == ',') {
+                comma = i;
+                break;
+            }
+        }
+        if (comma >= 0) {
+            int i = comma + 1;
+            if (i < length && value.charAt(i) == ' ') {
+                i++;
+            }
+            if (length - i == 24 && value.charAt(i + 2) == ' ') {
+                // IMF-fixdate: 06 Nov 1994 08:49:37 GMT
+                return toMillis(number(value, i + 7, 4), month(value, i + 3),
+                    number(value, i, 2), value, i + 12, ' ', i + 6, i + 11,
+                    i + 20, length);
+            }
+            if (length - i == 22 && value.charAt(i + 2) == '-') {
+                // RFC 850: 06-Nov-94 08:49:37 GMT
+                int yy = number(value, i + 7, 2);
+                if (value.charAt(i + 6) != '-' || yy < 0) {
+                    return -1;
+                }
+                return toMillis(fullYear(yy), month(value, i + 3),
+                    number(value, i, 2), value, i + 10, ' ', i + 9, i + 9,
+                    i + 18, length);
+            }
+            return -1;
+        }
+        // asctime: Sun Nov  6 08:49:37 1994
+        if (length != 24 || value.charAt(3) != ' ' || value.charAt(7) != ' '
+                || value.charAt(10) != ' ' || value.charAt(19) != ' ') {
+            return -1;
+        }
+        int day = (value.charAt(8) == ' ') ?
+            number(value, 9, 1) : number(value, 8, 2);
+        return toMillis(number(value, 20, 4), month(value, 4), day,
+                        value, 11, ' ', 10, 10, -1, length);
+    }
+
+    /*
+     * Validates the separators around the date, the time at timeStart and
+     * the " GMT" suffix at zoneStart (when not -1), then converts.
+     */
+    private static long toMillis(int year, int month, int day,
+            CharSequence value, int timeStart, char separator,
+            int separator1, int separator2, int zoneStart, int length) {
+        if (year < 0 || month < 0 || day < 1 || day > lengthOfMonth(year, month)
+                || value.charAt(separator1) != separator
+                || value.charAt(separator2) != separator
+                || value.charAt(timeStart + 2) != ':'
+                || value.charAt(timeStart + 5) != ':') {
+            return -1;
+        }
+        int hour = number(value, timeStart, 2);
+        int minute = number(value, timeStart + 3, 2);
+        int second = number(value, timeStart + 6, 2);
+        if (hour < 0 || hour > 23 || minute < 0 || minute > 59
+                || second < 0 || second > 60) {
+            return -1;
+        }
+        if (zoneStart >= 0) {
+            if (zoneStart + 4 != length || value.charAt(zoneStart) != ' '
+                    || value.charAt(zoneStart + 1) != 'G'
+                    || value.charAt(zoneStart + 2) != 'M'
+                    || value.charAt(zoneStart + 3) != 'T') {
+                return -1;
+            }
+        } else if (value.charAt(timeStart + 8) != ' ') {
+            return -1;
+        }
+        long days = daysFromCivil(year, month + 1, day);
+        return ((days * 24 + hour) * 60 + minute) * 60000L + second * 1000L;
+    }
+
+    /*
+     * Number of days in the zero-based month, proleptic Gregorian.
+     */
+    private static int lengthOfMonth(int year, int month) {
+        switch (month) {
+        case 1:
+            boolean leap = (year % 4 == 0) && (year % 100 != 0 || year % 400 == 0);
+            return leap ? 29 : 28;
+        case 3: case 5: case 8: case 10:
+            return 30;
+        default:
+            return 31;
+        }
+    }
+
+    private static long daysFromCivil(long year, int month, int day) {
+        year -= (month <= 2) ? 1 : 0;
+        long era = Math.floorDiv(year, 400L);
+        int yoe = (int) (year - era * 400);
+        int doy = (153 * (month + ((month > 2) ? -3 : 9)) + 2) / 5 + day - 1;
+        int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097 + doe - 719468;
+    }
+
+    private static int fullYear(int yy) {
+        long now = Math.floorDiv(System.currentTimeMillis(), 86400000L);
+        // year of the current date, close enough for a 50 year window
+        int currentYear = (int) (1970 + Math.floorDiv(now * 400, 146097L));
+        int year = currentYear - currentYear % 100 + yy;
+        if (year > currentYear + 50) {
+            year -= 100;
+        }
+        return year;
+    }
+
+    /*
+     * Returns the zero-based month for a three letter name, or -1.
+     */
+    private static int month(CharSequence value, int start) {
+        int packed = ((value.charAt(start) | 0x20) << 16)
+            | ((value.charAt(start + 1) | 0x20) << 8)
+            | (value.charAt(start + 2) | 0x20);
+        switch (packed) {
+        case ('j' << 16) | ('a' << 8) | 'n': return 0;
+        case ('f' << 16) | ('e' << 8) | 'b': return 1;
+        case ('m' << 16) | ('a' << 8) | 'r': return 2;
+        case ('a' << 16) | ('p' << 8) | 'r': return 3;
+        case ('m' << 16) | ('a' << 8) | 'y': return 4;
+        case ('j' << 16) | ('u' << 8) | 'n': return 5;
+        case ('j' << 16) | ('u' << 8) | 'l': return 6;
+        case ('a' << 16) | ('u' << 8) | 'g': return 7;
+        case ('s' << 16) | ('e' << 8) | 'p': return 8;
+        case ('o' << 16) | ('c' << 8) | 't': return 9;
+        case ('n' << 16) | ('o' << 8) | 'v': return 10;
+        case ('d' << 16) | ('e' << 8) | 'c': return 11;
+        default: return -1;
+        }
+    }
+
+    /*
+     * Parses count decimal digits at start, or returns -1.
+     */
+    private static int number(CharSequence value, int start, int count) {
+        int n = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            n = n * 10 + (c - '0');
+        }
+        return n;
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package javax.servlet.http;
+
+import java.util.Locale;
+
+/**
+ * よく使われるHTTPヘッダーの名前です。
+ *
+ * <p>各定数は正規の表記、小文字の表記、および小文字の表記の{@link String#hashCode}を保持しています。
+ * サーブレットコンテナは{@link HttpServletRequest#header(HttpHeaderName)}や{@link HttpServletResponse#putHeader(HttpHeaderName, String)}などのメソッドを実装して、
+ * 文字列のハッシュ値の計算や大文字小文字を区別しない比較の代わりに{@link #ordinal}による配列の添字でヘッダーを参照できます。
+ *
+ * <p>任意の文字列からの逆引きには{@link #lookup}を使用します。
+ * これは構築時に求めた完全ハッシュ表を1回引くだけで、オブジェクトを生成しません。
+ *
+ * @since Servlet 4.0.1
+ */
+public enum HttpHeaderName {
+
+    ACCEPT("Accept"),
+    ACCEPT_CHARSET("Accept-Charset"),
+    ACCEPT_ENCODING("Accept-Encoding"),
+    ACCEPT_LANGUAGE("Accept-Language"),
+    ACCEPT_RANGES("Accept-Ranges"),
+    AGE("Age"),
+    ALLOW("Allow"),
+    AUTHORIZATION("Authorization"),
+    CACHE_CONTROL("Cache-Control"),
+    CONNECTION("Connection"),
+    CONTENT_DISPOSITION("Content-Disposition"),
+    CONTENT_ENCODING("Content-Encoding"),
+    CONTENT_LANGUAGE("Content-Language"),
+    CONTENT_LENGTH("Content-Length"),
+    CONTENT_LOCATION("Content-Location"),
+    CONTENT_RANGE("Content-Range"),
+    CONTENT_TYPE("Content-Type"),
+    COOKIE("Cookie"),
+    DATE("Date"),
+    ETAG("ETag"),
+    EXPECT("Expect"),
+    EXPIRES("Expires"),
+    FORWARDED("Forwarded"),
+    FROM("From"),
+    HOST("Host"),
+    IF_MATCH("If-Match"),
+    IF_MODIFIED_SINCE("If-Modified-Since"),
+    IF_NONE_MATCH("If-None-Match"),
+    IF_RANGE("If-Range"),
+    IF_UNMODIFIED_SINCE("If-Unmodified-Since"),
+    LAST_MODIFIED("Last-Modified"),
+    LINK("Link"),
+    LOCATION("Location"),
+    MAX_FORWARDS("Max-Forwards"),
+    ORIGIN("Origin"),
+    PRAGMA("Pragma"),
+    PROXY_AUTHENTICATE("Proxy-Authenticate"),
+    PROXY_AUTHORIZATION("Proxy-Authorization"),
+    RANGE("Range"),
+    REFERER("Referer"),
+    RETRY_AFTER("Retry-After"),
+    SERVER("Server"),
+    SET_COOKIE("Set-Cookie"),
+    TE("TE"),
+    TRAILER("Trailer"),
+    TRANSFER_ENCODING("Transfer-Encoding"),
+    UPGRADE("Upgrade"),
+    USER_AGENT("User-Agent"),
+    VARY("Vary"),
+    VIA("Via"),
+    WARNING("Warning"),
+    WWW_AUTHENTICATE("WWW-Authenticate"),
+    X_FORWARDED_FOR("X-Forwarded-For"),
+    X_FORWARDED_HOST("X-Forwarded-Host"),
+    X_FORWARDED_PROTO("X-Forwarded-Proto");
+
+    /*
+     * Perfect hash table over the lower-case hashes: slot
+     * (hash * multiplier) >>> shift holds at most one constant. The
+     * multiplier and size are searched for once when the class is loaded.
+     */
+    private static final int MULTIPLIER;
+    private static final int SHIFT;
+    private static final HttpHeaderName[] TABLE;
+
+    static {
+        HttpHeaderName[] values = values();
+        int bits = 32 - Integer.numberOfLeadingZeros(values.length);
+        int multiplier = 0;
+        HttpHeaderName[] table = null;
+        search:
+        for (;; bits++) {
+            for (int seed = 1; seed <= 4096; seed++) {
+                int m = (seed * 0x9E3779B9) | 1;
+                HttpHeaderName[] t = new HttpHeaderName[1 << bits];
+                boolean collision = false;
+                for (HttpHeaderName h : values) {
+                    int i = (h.lowerCaseHash * m) >>> (32 - bits);
+                    if (t[i] != null) {
+                        collision = true;
+                        break;
+                    }
+                    t[i] = h;
+                }
+                if (!collision) {
+                    multiplier = m;
+                    table = t;
+                    break search;
+                }
+            }
+        }
+        MULTIPLIER = multiplier;
+        SHIFT = 32 - bits;
+        TABLE = table;
+    }
+
+    private final String name;
+    private final String lowerCaseName;
+    private final int lowerCaseHash;
+
+    private HttpHeaderName(String name) {
+        this.name = name;
+        this.lowerCaseName = name.toLowerCase(Locale.ENGLISH);
+        this.lowerCaseHash = lowerCaseName.hashCode();
+    }
+
+    /**
+     * ヘッダーの正規の名前を返します。
+     *
+     * @return {@code Content-Length}のようなヘッダーの名前
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * ヘッダーの名前を小文字で返します。
+     *
+     * @return {@code content-length}のような小文字のヘッダーの名前
+     */
+    public String getLowerCaseName() {
+        return lowerCaseName;
+    }
+
+    /**
+     * 小文字のヘッダーの名前のハッシュ値を返します。
+     *
+     * <p>この値は{@code getLowerCaseName().hashCode()}および{@link #lowerCaseHash(CharSequence)}と等しくなります。
+     *
+     * @return 小文字のヘッダーの名前のハッシュ値
+     */
+    public int getLowerCaseHash() {
+        return lowerCaseHash;
+    }
+
+    /**
+     * 与えられた名前がこのヘッダーの名前と大文字小文字を区別せずに等しいかどうかを判定します。
+     *
+     * @param name ヘッダーの名前
+     *
+     * @return 等しい場合はtrue
+     */
+    public boolean matches(CharSequence name) {
+        int length = lowerCaseName.length();
+        if (name == null || name.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (toLowerCase(name.charAt(i)) != lowerCaseName.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 与えられた名前に大文字小文字を区別せずに一致する定数を返します。
+     *
+     * @param name ヘッダーの名前
+     *
+     * @return 一致する定数、よく使われるヘッダーでない場合はnull
+     */
+    public static HttpHeaderName lookup(CharSequence name) {
+        if (name == null) {
+            return null;
+        }
+        HttpHeaderName h = TABLE[(lowerCaseHash(name) * MULTIPLIER) >>> SHIFT];
+        return (h != null && h.matches(name)) ? h : null;
+    }
+
+    /**
+     * 与えられた名前をASCIIの範囲で小文字にした文字列の{@link String#hashCode}を、文字列を生成せずに計算します。
+     *
+     * @param name ヘッダーの名前
+     *
+     * @return 小文字にした名前のハッシュ値
+     */
+    public static int lowerCaseHash(CharSequence name) {
+        int hash = 0;
+        for (int i = 0, length = name.length(); i < length; i++) {
+            hash = 31 * hash + toLowerCase(name.charAt(i));
+        }
+        return hash;
+    }
+
+    private static char toLowerCase(char c) {
+        return (c >= 'A' && c <= 'Z') ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    /**
+     * ヘッダーの正規の名前を返します。
+     *
+     * @return {@link #getName}と同じ値
+     */
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -60,12 +60,26 @@ package javax.servlet.http;
 
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.io.OutputStreamWriter;
 import java.io.UnsupportedEncodingException;
+import java.io.Writer;
 import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 import java.text.MessageFormat;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.Set;
 
 import javax.servlet.*;
 
@@ -106,13 +120,59 @@ public abstract class HttpServlet extends GenericServlet
     private static final String METHOD_PUT = "PUT";
     private static final String METHOD_TRACE = "TRACE";
 
-    private static final String HEADER_IFMODSINCE = "If-Modified-Since";
-    private static final String HEADER_LASTMOD = "Last-Modified";
-    
     private static final String LSTRING_FILE =
         "javax.servlet.http.LocalStrings";
     private static ResourceBundle lStrings =
         ResourceBundle.getBundle(LSTRING_FILE);
+
+    /*
+     * The "method not implemented" message split around its {0}, so that
+     * an unknown method costs a concatenation rather than a MessageFormat
+     * parse on every request.
+     */
+    private static final String[] NOT_IMPLEMENTED =
+        splitMessage("http.method_not_implemented");
+
+    /*
+     * Dispatch table for the standard HTTP methods. It is built once and
+     * shared by every HttpServlet: each entry calls back into the (possibly
+     * overridden) doXXX method, so it does not depend on the concrete class.
+     */
+    private static final Map<String, MethodDispatcher> STANDARD_METHODS;
+
+    static {
+        Map<String, MethodDispatcher> methods = new HashMap<>();
+        for (MethodDispatcher dispatcher : MethodDispatcher.values()) {
+            methods.put(dispatcher.name(), dispatcher);
+        }
+        STANDARD_METHODS = Collections.unmodifiableMap(methods);
+    }
+
+    /*
+     * Methods supported by each concrete servlet class, computed once from
+     * the doXXX methods the class overrides.
+     */
+    private static final ClassValue<AllowedMethods> CLASS_ALLOWED_METHODS =
+        new ClassValue<AllowedMethods>() {
+            @Override
+            protected AllowedMethods computeValue(Class<?> type) {
+                return new AllowedMethods(getOverriddenMethods(type));
+            }
+        };
+
+    /*
+     * Handlers for methods other than the standard ones, registered by the
+     * subclass through addMethodHandler, or null if there are none.
+     * Replaced copy-on-write so that service never needs to lock.
+     */
+    private transient volatile Map<String, HttpMethodHandler> extensionMethods;
+
+    /*
+     * Methods supported by this instance: the class value plus any
+     * registered extension methods. Written only while holding this
+     * servlet's lock; recomputed when a handler is registered.
+     */
+    private transient volatile AllowedMethods allowedMethods;
    
     
     /**
@@ -216,17 +276,44 @@ public abstract class HttpServlet extends GenericServlet
      * @throws IOException   I/Oエラーが発生した
      *
      * @throws ServletException  HEADのためのリクエストが処理できなかった
+     *
+     * @see #getHeadContentLength
      */
     protected void doHead(HttpServletRequest req, HttpServletResponse resp)
         throws ServletException, IOException
     {
+        long contentLength = getHeadContentLength(req);
+        if (contentLength >= 0) {
+            // the servlet knows the length, no need to run doGet
+            resp.setContentLengthLong(contentLength);
+            return;
+        }
+
         NoBodyResponse response = new NoBodyResponse(resp);
-        
         doGet(req, response);
         response.setContentLength();
     }
 
 
+    /**
+     * HEADリクエストに対するレスポンスボディの長さをバイト単位で返します。長さが判らない場合、このメソッドは負の数を返します。(デフォルトです)
+     *
+     * <p>このメソッドが0以上の値を返した場合、<code>doHead</code>メソッドは<code>doGet</code>メソッドを呼び出さずに、その値をContent-Lengthヘッダーに設定します。
+     * そのため<code>doGet</code>メソッドが設定するその他のヘッダーは設定されません。
+     * ヘルスチェックのように頻繁にHEADリクエストを受け、レスポンスボディの長さを迅速に判断できるサーブレットはこのメソッドをオーバーライドすると、
+     * レスポンスボディを生成するコストを回避できます。
+     *
+     * @param req   サーブレットに送られた <code>HttpServletRequest</code> のオブジェクト
+     *
+     * @return レスポンスボディの長さのバイト数を示す<code>long</code>、不明な場合は-1
+     *
+     * @since Servlet 4.0.1
+     */
+    protected long getHeadContentLength(HttpServletRequest req) {
+        return -1;
+    }
+
+
     /**
      * サーブレットがPOSTリクエストを処理できるようにするために(serviceメソッド経由で)サーバーによって呼び出されます。
      *
@@ -353,29 +440,100 @@ public abstract class HttpServlet extends GenericServlet
     }
     
 
-    private Method[] getAllDeclaredMethods(Class<? extends HttpServlet> c) {
-
-        Class<?> clazz = c;
-        Method[] allMethods = null;
-
-        while (!clazz.equals(HttpServlet.class)) {
-            Method[] thisMethods = clazz.getDeclaredMethods();
-            if (allMethods != null && allMethods.length > 0) {
-                Method[] subClassMethods = allMethods;
-                allMethods =
-                    new Method[thisMethods.length + subClassMethods.length];
-                System.arraycopy(thisMethods, 0, allMethods, 0,
-                                 thisMethods.length);
-                System.arraycopy(subClassMethods, 0, allMethods, thisMethods.length,
-                                 subClassMethods.length);
-            } else {
-                allMethods = thisMethods;
+    /*
+     * Determines the standard methods supported by the given servlet class
+     * from the doXXX methods declared between it and HttpServlet, in the
+     * order they are listed in the Allow header.
+     */
+    private static Set<String> getOverriddenMethods(Class<?> c) {
+
+        boolean allowGet = false;
+        boolean allowPost = false;
+        boolean allowPut = false;
+        boolean allowDelete = false;
+
+        for (Class<?> clazz = c;
+                clazz != null && !clazz.equals(HttpServlet.class);
+                clazz = clazz.getSuperclass()) {
+            for (Method m : clazz.getDeclaredMethods()) {
+                String methodName = m.getName();
+
+                if (methodName.equals("doGet")) {
+                    allowGet = true;
+                } else if (methodName.equals("doPost")) {
+                    allowPost = true;
+                } else if (methodName.equals("doPut")) {
+                    allowPut = true;
+                } else if (methodName.equals("doDelete")) {
+                    allowDelete = true;
+                }
             }
+        }
 
-            clazz = clazz.getSuperclass();
+        Set<String> methods = new LinkedHashSet<>();
+        if (allowGet) {
+            methods.add(METHOD_GET);
+            methods.add(METHOD_HEAD);
+        }
+        if (allowPost) {
+            methods.add(METHOD_POST);
         }
+        if (allowPut) {
+            methods.add(METHOD_PUT);
+        }
+        if (allowDelete) {
+            methods.add(METHOD_DELETE);
+        }
+        methods.add(METHOD_TRACE);
+        methods.add(METHOD_OPTIONS);
+        return methods;
+    }
 
-        return ((allMethods != null) ? allMethods : new Method[0]);
+
+    /*
+     * Returns the methods supported by this instance, computing and caching
+     * them on first use. Publication happens under the same lock as
+     * addMethodHandler so that a stale value can never overwrite the one
+     * computed for a newly registered handler.
+     */
+    private AllowedMethods getAllowed() {
+        AllowedMethods allowed = allowedMethods;
+        if (allowed == null) {
+            synchronized (this) {
+                allowed = allowedMethods;
+                if (allowed == null) {
+                    allowed = computeAllowed(extensionMethods);
+                    allowedMethods = allowed;
+                }
+            }
+        }
+        return allowed;
+    }
+
+    private AllowedMethods computeAllowed(Map<String, HttpMethodHandler> extensions) {
+        AllowedMethods allowed = CLASS_ALLOWED_METHODS.get(getClass());
+        if (extensions != null) {
+            Set<String> methods = new LinkedHashSet<>(allowed.methods);
+            methods.addAll(extensions.keySet());
+            allowed = new AllowedMethods(methods);
+        }
+        return allowed;
+    }
+
+
+    /**
+     * このサーブレットがサポートするHTTPメソッドの集合を返します。
+     *
+     * <p>集合はサブクラスがオーバーライドしている<code>do</code><i>XXX</i>メソッドと、{@link #addMethodHandler}で登録されたメソッドから求められ、
+     * <code>doOptions</code>が返す<code>Allow</code>ヘッダーと同じ順序で並んでいます。
+     * 標準のメソッドの集合はサーブレットのクラスごとに一度だけ計算され、以降の呼び出しでは同じインスタンスが返されます。
+     *
+     * @return サポートされているHTTPメソッドの名前の変更不可能な<code>Set</code>
+     *
+     * @since Servlet 4.0.1
+     */
+    public Set<String> getAllowedMethods() {
+        return getAllowed().methods;
     }
 
 
@@ -392,6 +550,11 @@ public abstract class HttpServlet extends GenericServlet
      *
      * <p>訳注：HTTP/2でもHTTPのメソッドは増えていないのでこのドキュメントの内容は有効です。
      *
+     * <p><code>Allow</code>ヘッダーの値には{@link #addMethodHandler}で登録されたメソッドも含まれます。
+     * 値はサーブレットのクラスごとに一度だけ計算され、以降のリクエストでは再利用されます。
+     *
+     * @see #getAllowedMethods
+     *
      * @param req   クライアントからのリクエストを含む{@link HttpServletRequest}オブジェクト
      *
      * @param resp  クライアントに返すレスポンスを含む{@link HttpServletResponse}オブジェクト                             
@@ -403,76 +566,7 @@ public abstract class HttpServlet extends GenericServlet
     protected void doOptions(HttpServletRequest req, HttpServletResponse resp)
         throws ServletException, IOException
     {
-        Method[] methods = getAllDeclaredMethods(this.getClass());
-        
-        boolean ALLOW_GET = false;
-        boolean ALLOW_HEAD = false;
-        boolean ALLOW_POST = false;
-        boolean ALLOW_PUT = false;
-        boolean ALLOW_DELETE = false;
-        boolean ALLOW_TRACE = true;
-        boolean ALLOW_OPTIONS = true;
-        
-        for (int i=0; i<methods.length; i++) {
-            String methodName = methods[i].getName();
-            
-            if (methodName.equals("doGet")) {
-                ALLOW_GET = true;
-                ALLOW_HEAD = true;
-            } else if (methodName.equals("doPost")) {
-                ALLOW_POST = true;
-            } else if (methodName.equals("doPut")) {
-                ALLOW_PUT = true;
-            } else if (methodName.equals("doDelete")) {
-                ALLOW_DELETE = true;
-            }
-            
-        }
-        
-        // we know "allow" is not null as ALLOW_OPTIONS = true
-        // when this method is invoked
-        StringBuilder allow = new StringBuilder();
-        if (ALLOW_GET) {
-            allow.append(METHOD_GET);
-        }
-        if (ALLOW_HEAD) {
-            if (allow.length() > 0) {
-                allow.append(", ");
-            }
-            allow.append(METHOD_HEAD);
-        }
-        if (ALLOW_POST) {
-            if (allow.length() > 0) {
-                allow.append(", ");
-            }
-            allow.append(METHOD_POST);
-        }
-        if (ALLOW_PUT) {
-            if (allow.length() > 0) {
-                allow.append(", ");
-            }
-            allow.append(METHOD_PUT);
-        }
-        if (ALLOW_DELETE) {
-            if (allow.length() > 0) {
-                allow.append(", ");
-            }
-            allow.append(METHOD_DELETE);
-        }
-        if (ALLOW_TRACE) {
-            if (allow.length() > 0) {
-                allow.append(", ");
-            }
-            allow.append(METHOD_TRACE);
-        }
-        if (ALLOW_OPTIONS) {
-            if (allow.length() > 0) {
-                allow.append(", ");
-            }
-            allow.append(METHOD_OPTIONS);
-        }
-        
-        resp.setHeader("Allow", allow.toString());
+        resp.putHeader(HttpHeaderName.ALLOW, getAllowed().header);
     }
     
     
@@ -524,6 +618,9 @@ public abstract class HttpServlet extends GenericServlet
      * このメソッドは{@link javax.servlet.Servlet#service}メソッドのHTTPに特化したバージョンです。
      * このメソッドをオーバーライドする必要はありません。
      *
+     * <p>標準以外のHTTPメソッドは{@link #addMethodHandler}で登録されたハンドラにディスパッチされます。
+     * どちらにも該当しないメソッドの場合はHTTP "Not Implemented"メッセージを返します。
+     *
      * @param req   クライアントからのリクエストを含む{@link HttpServletRequest}オブジェクト
      *
      * @param resp  クライアントに返すレスポンスを含む{@link HttpServletResponse}オブジェクト                               
@@ -539,59 +636,218 @@ public abstract class HttpServlet extends GenericServlet
     {
         String method = req.getMethod();
 
-        if (method.equals(METHOD_GET)) {
-            long lastModified = getLastModified(req);
-            if (lastModified == -1) {
-                // servlet doesn't support if-modified-since, no reason
-                // to go through further expensive logic
+        MethodDispatcher dispatcher = STANDARD_METHODS.get(method);
+        if (dispatcher != null) {
+            dispatcher.dispatch(this, req, resp);
+            return;
+        }
+
+        Map<String, HttpMethodHandler> extensions = extensionMethods;
+        if (extensions != null) {
+            HttpMethodHandler handler = extensions.get(method);
+            if (handler != null) {
+                handler.handle(req, resp);
+                return;
+            }
+        }
+
+        //
+        // Note that this means NO servlet supports whatever
+        // method was requested, anywhere on this server.
+        //
+
+        String errMsg = NOT_IMPLEMENTED[0] + method + NOT_IMPLEMENTED[1];
+
+        resp.sendError(HttpServletResponse.SC_NOT_IMPLEMENTED, errMsg);
+    }
+
+
+    /*
+     * Formats the message with a marker for {0} and returns the text
+     * before and after it.
+     */
+    private static String[] splitMessage(String key) {
+        String marker = "\uFFFF";
+        String msg = MessageFormat.format(lStrings.getString(key), marker);
+        int i = msg.indexOf(marker);
+        if (i < 0) {
+            return new String[] { msg, "" };
+        }
+        return new String[] { msg.substring(0, i), msg.substring(i + 1) };
+    }
+
+
+    /*
+     * GET entry of the dispatch table: honours If-Modified-Since when the
+     * servlet reports a last modification time.
+     */
+    private void dispatchGet(HttpServletRequest req, HttpServletResponse resp)
+        throws ServletException, IOException
+    {
+        long lastModified = getLastModified(req);
+        if (lastModified == -1) {
+            // servlet doesn't support if-modified-since, no reason
+            // to go through further expensive logic
+            doGet(req, resp);
+        } else {
+            long ifModifiedSince = req.dateHeader(HttpHeaderName.IF_MODIFIED_SINCE);
+            if (ifModifiedSince < lastModified) {
+                // If the servlet mod time is later, call doGet()
+                // Round down to the nearest second for a proper compare
+                // A ifModifiedSince of -1 will always be less
+                maybeSetLastModified(resp, lastModified);
                 doGet(req, resp);
             } else {
-                long ifModifiedSince = req.getDateHeader(HEADER_IFMODSINCE);
-                if (ifModifiedSince < lastModified) {
-                    // If the servlet mod time is later, call doGet()
-                    // Round down to the nearest second for a proper compare
-                    // A ifModifiedSince of -1 will always be less
-                    maybeSetLastModified(resp, lastModified);
-                    doGet(req, resp);
-                } else {
-                    resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
-                }
+                resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
             }
+        }
+    }
 
-        } else if (method.equals(METHOD_HEAD)) {
-            long lastModified = getLastModified(req);
-            maybeSetLastModified(resp, lastModified);
-            doHead(req, resp);
-
-        } else if (method.equals(METHOD_POST)) {
-            doPost(req, resp);
-            
-        } else if (method.equals(METHOD_PUT)) {
-            doPut(req, resp);
-            
-        } else if (method.equals(METHOD_DELETE)) {
-            doDelete(req, resp);
-            
-        } else if (method.equals(METHOD_OPTIONS)) {
-            doOptions(req,resp);
-            
-        } else if (method.equals(METHOD_TRACE)) {
-            doTrace(req,resp);
-            
-        } else {
-            //
-            // Note that this means NO servlet supports whatever
-            // method was requested, anywhere on this server.
-            //
 
-            String errMsg = lStrings.getString("http.method_not_implemented");
-            Object[] errArgs = new Object[1];
-            errArgs[0] = method;
-            errMsg = MessageFormat.format(errMsg, errArgs);
-            
-            resp.sendError(HttpServletResponse.SC_NOT_IMPLEMENTED, errMsg);
+    /*
+     * HEAD entry of the dispatch table.
+     */
+    private void dispatchHead(HttpServletRequest req, HttpServletResponse resp)
+        throws ServletException, IOException
+    {
+        long lastModified = getLastModified(req);
+        maybeSetLastModified(resp, lastModified);
+        doHead(req, resp);
+    }
+
+
+    /**
+     * 標準のHTTPメソッド(GET、HEAD、POST、PUT、DELETE、OPTIONS、TRACE)以外のHTTPメソッドを処理するハンドラを登録します。
+     *
+     * <p>登録されたメソッドのリクエストはprotectedな<code>service</code>メソッドから指定したハンドラにディスパッチされます。
+     * これによりサブクラスは<code>service</code>メソッドをオーバーライドすることなくPATCHやPROPFIND、QUERYなどのメソッドをサポートできます。
+     *
+     * <p>このメソッドはサブクラスのコンストラクタもしくは<code>init</code>メソッドから、リクエストの処理が始まる前に呼び出す必要があります。
+     * 同じメソッド名で再度登録した場合は以前のハンドラが置き換えられます。
+     *
+     * @param method  大文字と小文字が区別されるHTTPメソッドの名前。たとえば<code>"PATCH"</code>
+     *
+     * @param handler  メソッドを処理する{@link HttpMethodHandler}
+     *
+     * @throws IllegalArgumentException  <code>method</code>もしくは<code>handler</code>がnullであるか、<code>method</code>が空文字列または標準のHTTPメソッドの名前である場合
+     *
+     * @since Servlet 4.0.1
+     */
+    protected void addMethodHandler(String method, HttpMethodHandler handler) {
+        if (method == null || method.isEmpty() || handler == null) {
+            throw new IllegalArgumentException(
+                lStrings.getString("err.method_handler_invalid"));
+        }
+        if (STANDARD_METHODS.containsKey(method)) {
+            String msg = lStrings.getString("err.method_handler_standard");
+            throw new IllegalArgumentException(
+                MessageFormat.format(msg, method));
+        }
+        synchronized (this) {
+            Map<String, HttpMethodHandler> methods = new LinkedHashMap<>();
+            if (extensionMethods != null) {
+                methods.putAll(extensionMethods);
+            }
+            methods.put(method, handler);
+            Map<String, HttpMethodHandler> extensions =
+                Collections.unmodifiableMap(methods);
+            extensionMethods = extensions;
+            allowedMethods = computeAllowed(extensions);
+        }
+    }
+
+
+    /*
+     * Set of supported methods together with the matching Allow header
+     * value, so that doOptions does not rebuild the string on each request.
+     */
+    private static final class AllowedMethods {
+
+        final Set<String> methods;
+        final String header;
+
+        AllowedMethods(Collection<String> methods) {
+            StringBuilder allow = new StringBuilder();
+            for (String method : methods) {
+                if (allow.length() > 0) {
+                    allow.append(", ");
+                }
+                allow.append(method);
+            }
+            this.methods = Collections.unmodifiableSet(
+                new LinkedHashSet<>(methods));
+            this.header = allow.toString();
         }
     }
+
+
+    /*
+     * Entries of the standard dispatch table, named after their HTTP
+     * methods. An enum rather than method references keeps invokedynamic
+     * out of this class, which the bundle plugin cannot parse.
+     */
+    private enum MethodDispatcher {
+        GET {
+            @Override
+            void dispatch(HttpServlet servlet, HttpServletRequest req,
+                          HttpServletResponse resp)
+                throws ServletException, IOException {
+                servlet.dispatchGet(req, resp);
+            }
+        },
+        HEAD {
+            @Override
+            void dispatch(HttpServlet servlet, HttpServletRequest req,
+                          HttpServletResponse resp)
+                throws ServletException, IOException {
+                servlet.dispatchHead(req, resp);
+            }
+        },
+        POST {
+            @Override
+            void dispatch(HttpServlet servlet, HttpServletRequest req,
+                          HttpServletResponse resp)
+                throws ServletException, IOException {
+                servlet.doPost(req, resp);
+            }
+        },
+        PUT {
+            @Override
+            void dispatch(HttpServlet servlet, HttpServletRequest req,
+                          HttpServletResponse resp)
+                throws ServletException, IOException {
+                servlet.doPut(req, resp);
+            }
+        },
+        DELETE {
+            @Override
+            void dispatch(HttpServlet servlet, HttpServletRequest req,
+                          HttpServletResponse resp)
+                throws ServletException, IOException {
+                servlet.doDelete(req, resp);
+            }
+        },
+        OPTIONS {
+            @Override
+            void dispatch(HttpServlet servlet, HttpServletRequest req,
+                          HttpServletResponse resp)
+                throws ServletException, IOException {
+                servlet.doOptions(req, resp);
+            }
+        },
+        TRACE {
+            @Override
+            void dispatch(HttpServlet servlet, HttpServletRequest req,
+                          HttpServletResponse resp)
+                throws ServletException, IOException {
+                servlet.doTrace(req, resp);
+            }
+        };
+
+        abstract void dispatch(HttpServlet servlet, HttpServletRequest req,
+                               HttpServletResponse resp)
+            throws ServletException, IOException;
+    }
     
 
     /*
@@ -603,10 +859,10 @@ public abstract class HttpServlet extends GenericServlet
      */
     private void maybeSetLastModified(HttpServletResponse resp,
                                       long lastModified) {
-        if (resp.containsHeader(HEADER_LASTMOD))
+        if (resp.hasHeader(HttpHeaderName.LAST_MODIFIED))
             return;
         if (lastModified >= 0)
-            resp.setDateHeader(HEADER_LASTMOD, lastModified);
+            resp.putDateHeader(HttpHeaderName.LAST_MODIFIED, lastModified);
     }
    
     
@@ -648,6 +904,11 @@ public abstract class HttpServlet extends GenericServlet
  * This just swallows that body, counting the bytes in order to set
  * the content length appropriately.  All other methods delegate directly
  * to the wrapped HTTP Servlet Response object.
+ *
+ * Instances are deliberately not pooled: a per-thread cache owned by the
+ * web application would keep the last response reachable between
+ * requests and pin the application's class loader on container threads.
+ * The wrapper and its counting sinks are small and short-lived.
  */
 // file private
 class NoBodyResponse extends HttpServletResponseWrapper {
@@ -655,10 +916,12 @@ class NoBodyResponse extends HttpServletResponseWrapper {
     private static final ResourceBundle lStrings
         = ResourceBundle.getBundle("javax.servlet.http.LocalStrings");
 
-    private NoBodyOutputStream noBody;
+    private final NoBodyOutputStream noBody;
+    private NoBodyWriter counter;
     private PrintWriter writer;
     private boolean didSetContentLength;
     private boolean usingOutputStream;
+    private boolean usingWriter;
 
     // file private
     NoBodyResponse(HttpServletResponse r) {
@@ -669,10 +932,14 @@ class NoBodyResponse extends HttpServletResponseWrapper {
     // file private
     void setContentLength() {
         if (!didSetContentLength) {
-            if (writer != null) {
+            long contentLength;
+            if (usingWriter) {
                 writer.flush();
+                contentLength = counter.getContentLength();
+            } else {
+                contentLength = noBody.getContentLength();
             }
-            setContentLength(noBody.getContentLength());
+            setContentLengthLong(contentLength);
         }
     }
 
@@ -713,7 +980,7 @@ class NoBodyResponse extends HttpServletResponseWrapper {
     }
 
     private void checkHeader(String name) {
-        if ("content-length".equalsIgnoreCase(name)) {
+        if (HttpHeaderName.CONTENT_LENGTH.matches(name)) {
             didSetContentLength = true;
         }
     }
@@ -721,7 +988,7 @@ class NoBodyResponse extends HttpServletResponseWrapper {
     @Override
     public ServletOutputStream getOutputStream() throws IOException {
 
-        if (writer != null) {
+        if (usingWriter) {
             throw new IllegalStateException(
                 lStrings.getString("err.ise.getOutputStream"));
         }
@@ -738,10 +1005,17 @@ class NoBodyResponse extends HttpServletResponseWrapper {
                 lStrings.getString("err.ise.getWriter"));
         }
 
-        if (writer == null) {
-            OutputStreamWriter w = new OutputStreamWriter(
-                noBody, getCharacterEncoding());
-            writer = new PrintWriter(w);
+        if (!usingWriter) {
+            Charset charset;
+            String encoding = getCharacterEncoding();
+            try {
+                charset = Charset.forName(encoding);
+            } catch (IllegalArgumentException e) {
+                throw new UnsupportedEncodingException(encoding);
+            }
+            counter = new NoBodyWriter(charset);
+            writer = new PrintWriter(counter);
+            usingWriter = true;
         }
 
         return writer;
@@ -760,13 +1034,13 @@ class NoBodyOutputStream extends ServletOutputStream {
     private static ResourceBundle lStrings =
         ResourceBundle.getBundle(LSTRING_FILE);
 
-    private int contentLength = 0;
+    private long contentLength = 0;
 
     // file private
     NoBodyOutputStream() {}
 
     // file private
-    int getContentLength() {
+    long getContentLength() {
         return contentLength;
     }
 
@@ -797,6 +1071,24 @@ class NoBodyOutputStream extends ServletOutputStream {
         contentLength += len;
     }
 
+    @Override
+    public long transferFrom(FileChannel src, long position, long count)
+        throws IOException
+    {
+        if (position < 0 || count < 0) {
+            throw new IllegalArgumentException();
+        }
+        // only the length matters, the file is never read
+        long len = Math.max(0, Math.min(count, src.size() - position));
+        contentLength += len;
+        return len;
+    }
+
+    @Override
+    public boolean isZeroCopyTransfer() {
+        return true;
+    }
+
 
     public boolean isReady() {
         return false;
@@ -806,3 +1098,202 @@ class NoBodyOutputStream extends ServletOutputStream {
 
     }
 }
+
+
+/*
+ * Writer that gobbles up all its data, counting the number of bytes the
+ * characters would take in the response character encoding. UTF-8,
+ * UTF-16 and the single byte Latin charsets are counted arithmetically;
+ * other charsets are encoded into a small scratch buffer that is thrown
+ * away. Unmappable and malformed input is counted as if replaced, the
+ * same as OutputStreamWriter does.
+ */
+// file private
+class NoBodyWriter extends Writer {
+
+    private static final int SINGLE_BYTE = 0;
+    private static final int UTF_8 = 1;
+    private static final int UTF_16 = 2;
+    private static final int OTHER = 3;
+
+    private static final int SCRATCH_SIZE = 1024;
+
+    private int mode;
+    private boolean byteOrderMark;
+    private CharsetEncoder encoder;
+    private CharBuffer chars;
+    private ByteBuffer scratch;
+
+    private long contentLength;
+    private char highSurrogate;
+    private boolean closed;
+
+    // file private
+    NoBodyWriter(Charset charset) {
+        String name = charset.name();
+        if (name.equals("UTF-8")) {
+            mode = UTF_8;
+        } else if (name.equals("ISO-8859-1") || name.equals("US-ASCII")) {
+            mode = SINGLE_BYTE;
+        } else if (name.equals("UTF-16BE") || name.equals("UTF-16LE")) {
+            mode = UTF_16;
+        } else if (name.equals("UTF-16")) {
+            mode = UTF_16;
+            byteOrderMark = true;
+        } else {
+            mode = OTHER;
+            encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            chars = CharBuffer.allocate(SCRATCH_SIZE);
+            scratch = ByteBuffer.allocate(SCRATCH_SIZE * 4);
+        }
+    }
+
+    // file private
+    long getContentLength() {
+        return contentLength;
+    }
+
+    @Override
+    public void write(int c) {
+        if (mode == OTHER) {
+            encode((char) c);
+        } else {
+            count((char) c);
+        }
+    }
+
+    @Override
+    public void write(char cbuf[], int off, int len) {
+        if (off < 0 || len < 0 || off + len > cbuf.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        int end = off + len;
+        if (mode == OTHER) {
+            for (int i = off; i < end; i++) {
+                encode(cbuf[i]);
+            }
+        } else {
+            for (int i = off; i < end; i++) {
+                count(cbuf[i]);
+            }
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int len) {
+        if (off < 0 || len < 0 || off + len > str.length()) {
+            throw new IndexOutOfBoundsException();
+        }
+        int end = off + len;
+        if (mode == OTHER) {
+            for (int i = off; i < end; i++) {
+                encode(str.charAt(i));
+            }
+        } else {
+            for (int i = off; i < end; i++) {
+                count(str.charAt(i));
+            }
+        }
+    }
+
+    /*
+     * Adds the encoded length of c. A high surrogate is held back until the
+     * next character shows whether it starts a valid pair.
+     */
+    private void count(char c) {
+        if (highSurrogate != 0) {
+            char high = highSurrogate;
+            highSurrogate = 0;
+            if (Character.isLowSurrogate(c)) {
+                // a supplementary character: four bytes in UTF-8 and
+                // UTF-16, a single replacement byte otherwise
+                if (contentLength == 0 && byteOrderMark) {
+                    contentLength = 2;
+                }
+                contentLength += (mode == SINGLE_BYTE) ? 1 : 4;
+                return;
+            }
+            count(high, false);
+        }
+        if (Character.isHighSurrogate(c)) {
+            highSurrogate = c;
+        } else {
+            count(c, Character.isLowSurrogate(c));
+        }
+    }
+
+    private void count(char c, boolean malformed) {
+        if (contentLength == 0 && byteOrderMark) {
+            contentLength = 2;
+        }
+        switch (mode) {
+        case UTF_8:
+            if (c < 0x80 || malformed || Character.isSurrogate(c)) {
+                contentLength += 1;
+            } else if (c < 0x800) {
+                contentLength += 2;
+            } else {
+                contentLength += 3;
+            }
+            break;
+        case UTF_16:
+            contentLength += 2;
+            break;
+        default:
+            contentLength += 1;
+        }
+    }
+
+    private void encode(char c) {
+        chars.put(c);
+        if (!chars.hasRemaining()) {
+            drain(false);
+        }
+    }
+
+    /*
+     * Encodes the buffered characters into the scratch buffer, counting and
+     * discarding the result. Incomplete input is kept for the next call.
+     */
+    private void drain(boolean endOfInput) {
+        chars.flip();
+        CoderResult result;
+        do {
+            scratch.clear();
+            result = encoder.encode(chars, scratch, endOfInput);
+            contentLength += scratch.position();
+        } while (result.isOverflow());
+        if (endOfInput) {
+            do {
+                scratch.clear();
+                result = encoder.flush(scratch);
+                contentLength += scratch.position();
+            } while (result.isOverflow());
+        }
+        chars.compact();
+    }
+
+    @Override
+    public void flush() {
+        if (mode == OTHER && chars.position() > 0) {
+            drain(false);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        if (mode == OTHER) {
+            drain(true);
+        } else if (highSurrogate != 0) {
+            char high = highSurrogate;
+            highSurrogate = 0;
+            count(high, true);
+        }
+        closed = true;
+    }
+}
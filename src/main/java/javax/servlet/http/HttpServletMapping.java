@@ -105,6 +105,8 @@ package javax.servlet.http;
  *   
  * </table>
  * 
+ * @see ServletMappingMatcher
+ *
  * @since 4.0
  */
 public interface HttpServletMapping {
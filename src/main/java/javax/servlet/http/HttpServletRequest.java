@@ -120,6 +120,49 @@ public interface HttpServletRequest extends ServletRequest {
      */
     public Cookie[] getCookies();
 
+    /**
+     * このリクエストでクライアントが送信した、指定した名前を持つ最初の<code>Cookie</code>オブジェクトを返します。
+     * 名前は大文字と小文字が区別されます。
+     *
+     * <p>サーブレットコンテナはこのメソッドをオーバーライドして、すべての<code>Cookie</code>オブジェクトを生成せずに
+     * 遅延して作成した索引から返すことができます。{@link CookieCodec.LazyCookies}を参照してください。
+     *
+     * @implSpec デフォルト実装では{@link #getCookies}が返す配列を先頭から検索します。
+     *
+     * @param name		Cookieの名前
+     *
+     * @return		指定した名前を持つ<code>Cookie</code>オブジェクト、存在しない場合は<code>null</code>
+     *
+     * @since Servlet 4.0.1
+     */
+    default public Cookie getCookie(String name) {
+        Cookie[] cookies = getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (cookie.getName().equals(name)) {
+                    return cookie;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * このリクエストでクライアントが送信したCookieの数を返します。
+     *
+     * <p>サーブレットコンテナはこのメソッドをオーバーライドして、<code>Cookie</code>オブジェクトを生成せずに数を返すことができます。
+     *
+     * @implSpec デフォルト実装では{@link #getCookies}が返す配列の長さを返します。
+     *
+     * @return		Cookieの数、送信されたCookieがない場合は0
+     *
+     * @since Servlet 4.0.1
+     */
+    default public int getCookieCount() {
+        Cookie[] cookies = getCookies();
+        return (cookies == null) ? 0 : cookies.length;
+    }
+
     /**
      * リクエストヘッダーの指定された値の<code>Date</code>オブジェクトを表す<code>long</code> 値を返します。
      * このメソッドは<code>If-Modified-Since</code>のような日付を含むヘッダーに使用します。
@@ -138,6 +181,27 @@ public interface HttpServletRequest extends ServletRequest {
      */
     public long getDateHeader(String name);
 
+    /**
+     * 指定されたよく使われるヘッダーの値を日付として返します。
+     *
+     * <p>サーブレットコンテナはこのメソッドをオーバーライドして、名前の文字列を比較せずにヘッダーを参照できます。
+     *
+     * @implSpec デフォルト実装では{@code getDateHeader(name.getName())}を返します。
+     *
+     * @param name ヘッダーの名前
+     *
+     * @return {@link #getDateHeader(String)}と同じ値
+     *
+     * @exception IllegalArgumentException ヘッダーの値を日付に変換できなかった
+     *
+     * @see HttpHeaderName
+     *
+     * @since Servlet 4.0.1
+     */
+    default public long dateHeader(HttpHeaderName name) {
+        return getDateHeader(name.getName());
+    }
+
     /**
      * リクエストヘッダーの指定された値を<code>String</code>として返します。
      * リクエストが指定された名前のヘッダーを含まない場合は<code>null</code>を返します。
@@ -151,6 +215,25 @@ public interface HttpServletRequest extends ServletRequest {
      */
     public String getHeader(String name);
 
+    /**
+     * 指定されたよく使われるヘッダーの値を<code>String</code>として返します。
+     *
+     * <p>サーブレットコンテナはこのメソッドをオーバーライドして、名前の文字列を比較せずにヘッダーを参照できます。
+     *
+     * @implSpec デフォルト実装では{@code getHeader(name.getName())}を返します。
+     *
+     * @param name ヘッダーの名前
+     *
+     * @return {@link #getHeader(String)}と同じ値
+     *
+     * @see HttpHeaderName
+     *
+     * @since Servlet 4.0.1
+     */
+    default public String header(HttpHeaderName name) {
+        return getHeader(name.getName());
+    }
+
     /**
      * リクエストヘッダーの指定された値を<code>String</code>オブジェクトの<code>Enumeration</code>として返します。
      * 
@@ -166,6 +249,25 @@ public interface HttpServletRequest extends ServletRequest {
      */
     public Enumeration<String> getHeaders(String name);
 
+    /**
+     * 指定されたよく使われるヘッダーのすべての値を<code>String</code>オブジェクトの<code>Enumeration</code>として返します。
+     *
+     * <p>サーブレットコンテナはこのメソッドをオーバーライドして、名前の文字列を比較せずにヘッダーを参照できます。
+     *
+     * @implSpec デフォルト実装では{@code getHeaders(name.getName())}を返します。
+     *
+     * @param name ヘッダーの名前
+     *
+     * @return {@link #getHeaders(String)}と同じ値
+     *
+     * @see HttpHeaderName
+     *
+     * @since Servlet 4.0.1
+     */
+    default public Enumeration<String> headers(HttpHeaderName name) {
+        return getHeaders(name.getName());
+    }
+
     /**
      * リクエストに含まれるすべてのヘッダーの名前のEnumerationを返します。
      * リクエストにヘッダーがない場合はこのメソッドは空のEnumerationを返します。
@@ -192,6 +294,27 @@ public interface HttpServletRequest extends ServletRequest {
      */
     public int getIntHeader(String name);
 
+    /**
+     * 指定されたよく使われるヘッダーの値を<code>int</code>として返します。
+     *
+     * <p>サーブレットコンテナはこのメソッドをオーバーライドして、名前の文字列を比較せずにヘッダーを参照できます。
+     *
+     * @implSpec デフォルト実装では{@code getIntHeader(name.getName())}を返します。
+     *
+     * @param name ヘッダーの名前
+     *
+     * @return {@link #getIntHeader(String)}と同じ値
+     *
+     * @exception NumberFormatException ヘッダーの値を<code>int</code>に変換できなかった
+     *
+     * @see HttpHeaderName
+     *
+     * @since Servlet 4.0.1
+     */
+    default public int intHeader(HttpHeaderName name) {
+        return getIntHeader(name.getName());
+    }
+
     /**
      * <p>この{@code HttpServletRequest}が呼び出された{@link HttpServlet}の{@link HttpServletMapping}を返します。
      * 該当する{@link javax.servlet.Filter}のマッピングは結果に表示されません。
@@ -461,6 +584,8 @@ public interface HttpServletRequest extends ServletRequest {
      *
      * @throws IllegalStateException リクエストに関連付けられたセッションが存在しない
      *
+     * @see SessionIdGenerator
+     *
      * @since Servlet 3.1
      */
     public String changeSessionId();
@@ -76,6 +76,52 @@ import javax.servlet.ServletRequestWrapper;
 
 public class HttpServletRequestWrapper extends ServletRequestWrapper implements HttpServletRequest {
 
+    /*
+     * Methods listed here are routed by _getDelegate straight to the
+     * first object down the wrapper chain whose class implements them
+     * itself.
+     */
+    private static final WrapperDelegation DELEGATION =
+        new WrapperDelegation(HttpServletRequestWrapper.class);
+    private static final int AUTH_TYPE = DELEGATION.slot("getAuthType");
+    private static final int COOKIES = DELEGATION.slot("getCookies");
+    private static final int DATE_HEADER = DELEGATION.slot("getDateHeader", String.class);
+    private static final int HEADER = DELEGATION.slot("getHeader", String.class);
+    private static final int HEADERS = DELEGATION.slot("getHeaders", String.class);
+    private static final int HEADER_NAMES = DELEGATION.slot("getHeaderNames");
+    private static final int INT_HEADER = DELEGATION.slot("getIntHeader", String.class);
+    private static final int HTTP_SERVLET_MAPPING = DELEGATION.slot("getHttpServletMapping");
+    private static final int METHOD = DELEGATION.slot("getMethod");
+    private static final int PATH_INFO = DELEGATION.slot("getPathInfo");
+    private static final int PATH_TRANSLATED = DELEGATION.slot("getPathTranslated");
+    private static final int CONTEXT_PATH = DELEGATION.slot("getContextPath");
+    private static final int QUERY_STRING = DELEGATION.slot("getQueryString");
+    private static final int REMOTE_USER = DELEGATION.slot("getRemoteUser");
+    private static final int USER_IN_ROLE = DELEGATION.slot("isUserInRole", String.class);
+    private static final int USER_PRINCIPAL = DELEGATION.slot("getUserPrincipal");
+    private static final int REQUESTED_SESSION_ID = DELEGATION.slot("getRequestedSessionId");
+    private static final int REQUEST_URI = DELEGATION.slot("getRequestURI");
+    private static final int REQUEST_URL = DELEGATION.slot("getRequestURL");
+    private static final int SERVLET_PATH = DELEGATION.slot("getServletPath");
+    private static final int COOKIE =
+        DELEGATION.alias(DELEGATION.slot("getCookie", String.class), COOKIES);
+    private static final int COOKIE_COUNT =
+        DELEGATION.alias(DELEGATION.slot("getCookieCount"), COOKIES);
+    private static final int DATE_HEADER_BY_NAME =
+        DELEGATION.alias(DELEGATION.slot("dateHeader", HttpHeaderName.class), DATE_HEADER);
+    private static final int HEADER_BY_NAME =
+        DELEGATION.alias(DELEGATION.slot("header", HttpHeaderName.class), HEADER);
+    private static final int HEADERS_BY_NAME =
+        DELEGATION.alias(DELEGATION.slot("headers", HttpHeaderName.class), HEADERS);
+    private static final int INT_HEADER_BY_NAME =
+        DELEGATION.alias(DELEGATION.slot("intHeader", HttpHeaderName.class), INT_HEADER);
+
+    /*
+     * The methods this wrapper's class implements itself, one bit per
+     * DELEGATION slot, looked up once per instance.
+     */
+    private final long overrides = DELEGATION.get(getClass());
+
     /** 
      * 与えられたリクエストをラップしてリクエストオブジェクトを生成します。
      * 
@@ -91,12 +137,34 @@ public class HttpServletRequestWrapper extends ServletRequestWrapper implements
         return (HttpServletRequest) super.getRequest();
     }
 
+    /*
+     * Skips the wrappers below this one whose class does not implement
+     * the method itself; they would only forward the call. Each hop is a
+     * field read on a private, non-virtual path.
+     */
+    private HttpServletRequest _getDelegate(int method) {
+        long bit = 1L << method;
+        HttpServletRequest r = this._getHttpServletRequest();
+        while (r instanceof HttpServletRequestWrapper) {
+            HttpServletRequestWrapper w = (HttpServletRequestWrapper) r;
+            if ((w.overrides & bit) != 0) {
+                break;
+            }
+            r = w._getHttpServletRequest();
+        }
+        return r;
+    }
+
+    private boolean _overrides(int method) {
+        return (overrides & (1L << method)) != 0;
+    }
+
     /**
      * このメソッドのデフォルトの動作はラップされたリクエストオブジェクトのgetAuthType()を返すことです。
      */
     @Override
     public String getAuthType() {
-        return this._getHttpServletRequest().getAuthType();
+        return this._getDelegate(AUTH_TYPE).getAuthType();
     }
    
     /**
@@ -104,7 +172,37 @@ public class HttpServletRequestWrapper extends ServletRequestWrapper implements
      */
     @Override
     public Cookie[] getCookies() {
-        return this._getHttpServletRequest().getCookies();
+        return this._getDelegate(COOKIES).getCookies();
+    }
+
+    /**
+     * このメソッドのデフォルトの動作はラップされたリクエストオブジェクトのgetCookie(String name)を返すことです。
+     * ただし、このクラスのサブクラスがgetCookies()をオーバーライドしている場合は、getCookies()が返す配列から検索します。
+     *
+     * @since Servlet 4.0.1
+     */
+    @Override
+    public Cookie getCookie(String name) {
+        if (_overrides(COOKIES)) {
+            return HttpServletRequest.super.getCookie(name);
+        } else {
+            return this._getDelegate(COOKIE).getCookie(name);
+        }
+    }
+
+    /**
+     * このメソッドのデフォルトの動作はラップされたリクエストオブジェクトのgetCookieCount()を返すことです。
+     * ただし、このクラスのサブクラスがgetCookies()をオーバーライドしている場合は、getCookies()が返す配列の長さを返します。
+     *
+     * @since Servlet 4.0.1
+     */
+    @Override
+    public int getCookieCount() {
+        if (_overrides(COOKIES)) {
+            return HttpServletRequest.super.getCookieCount();
+        } else {
+            return this._getDelegate(COOKIE_COUNT).getCookieCount();
+        }
     }
 
     /**
@@ -112,7 +210,22 @@ public class HttpServletRequestWrapper extends ServletRequestWrapper implements
      */
     @Override
     public long getDateHeader(String name) {
-        return this._getHttpServletRequest().getDateHeader(name);
+        return this._getDelegate(DATE_HEADER).getDateHeader(name);
+    }
+
+    /**
+     * このメソッドのデフォルトの動作はラップされたリクエストオブジェクトのdateHeader(HttpHeaderName name)を返すことです。
+     * ただし、このクラスのサブクラスがgetDateHeader(String name)だけをオーバーライドしている場合はgetDateHeader(name.getName())を返します。
+     *
+     * @since Servlet 4.0.1
+     */
+    @Override
+    public long dateHeader(HttpHeaderName name) {
+        if (_overrides(DATE_HEADER)) {
+            return getDateHeader(name.getName());
+        } else {
+            return this._getDelegate(DATE_HEADER_BY_NAME).dateHeader(name);
+        }
     }
                 
     /**
@@ -120,7 +233,22 @@ public class HttpServletRequestWrapper extends ServletRequestWrapper implements
      */
     @Override
     public String getHeader(String name) {
-        return this._getHttpServletRequest().getHeader(name);
+        return this._getDelegate(HEADER).getHeader(name);
+    }
+
+    /**
+     * このメソッドのデフォルトの動作はラップされたリクエストオブジェクトのheader(HttpHeaderName name)を返すことです。
+     * ただし、このクラスのサブクラスがgetHeader(String name)だけをオーバーライドしている場合はgetHeader(name.getName())を返します。
+     *
+     * @since Servlet 4.0.1
+     */
+    @Override
+    public String header(HttpHeaderName name) {
+        if (_overrides(HEADER)) {
+            return getHeader(name.getName());
+        } else {
+            return this._getDelegate(HEADER_BY_NAME).header(name);
+        }
     }
     
     /**
@@ -128,15 +256,30 @@ public class HttpServletRequestWrapper extends ServletRequestWrapper implements
      */
     @Override
     public Enumeration<String> getHeaders(String name) {
-        return this._getHttpServletRequest().getHeaders(name);
+        return this._getDelegate(HEADERS).getHeaders(name);
     }  
 
+    /**
+     * このメソッドのデフォルトの動作はラップされたリクエストオブジェクトのheaders(HttpHeaderName name)を返すことです。
+     * ただし、このクラスのサブクラスがgetHeaders(String name)だけをオーバーライドしている場合はgetHeaders(name.getName())を返します。
+     *
+     * @since Servlet 4.0.1
+     */
+    @Override
+    public Enumeration<String> headers(HttpHeaderName name) {
+        if (_overrides(HEADERS)) {
+            return getHeaders(name.getName());
+        } else {
+            return this._getDelegate(HEADERS_BY_NAME).headers(name);
+        }
+    }
+
     /**
      * このメソッドのデフォルトの動作はラップされたリクエストオブジェクトのgetHeaderNames()を返すことです。
      */
     @Override
     public Enumeration<String> getHeaderNames() {
-        return this._getHttpServletRequest().getHeaderNames();
+        return this._getDelegate(HEADER_NAMES).getHeaderNames();
     }
     
     /**
@@ -144,7 +287,22 @@ public class HttpServletRequestWrapper extends ServletRequestWrapper implements
      */
     @Override
      public int getIntHeader(String name) {
-        return this._getHttpServletRequest().getIntHeader(name);
+        return this._getDelegate(INT_HEADER).getIntHeader(name);
+    }
+
+    /**
+     * このメソッドのデフォルトの動作はラップされたリクエストオブジェクトのintHeader(HttpHeaderName name)を返すことです。
+     * ただし、このクラスのサブクラスがgetIntHeader(String name)だけをオーバーライドしている場合はgetIntHeader(name.getName())を返します。
+     *
+     * @since Servlet 4.0.1
+     */
+    @Override
+    public int intHeader(HttpHeaderName name) {
+        if (_overrides(INT_HEADER)) {
+            return getIntHeader(name.getName());
+        } else {
+            return this._getDelegate(INT_HEADER_BY_NAME).intHeader(name);
+        }
     }
 
     /**
@@ -152,7 +310,7 @@ public class HttpServletRequestWrapper extends ServletRequestWrapper implements
      */
      @Override
      public HttpServletMapping getHttpServletMapping() {
-        return this._getHttpServletRequest().getHttpServletMapping();
+        return this._getDelegate(HTTP_SERVLET_MAPPING).getHttpServletMapping();
     }
 
     /**
@@ -160,7 +318,7 @@ public class HttpServletRequestWrapper extends ServletRequestWrapper implements
      */
     @Override
     public String getMethod() {
-        return this._getHttpServletRequest().getMethod();
+        return this._getDelegate(METHOD).getMethod();
     }
     
     /**
@@ -168,7 +326,7 @@ public class HttpServletRequestWrapper extends ServletRequestWrapper implements
      */
     @Override
     public String getPathInfo() {
-        return this._getHttpServletRequest().getPathInfo();
+        return this._getDelegate(PATH_INFO).getPathInfo();
     }
 
     /**
@@ -176,7 +334,7 @@ public class HttpServletRequestWrapper extends ServletRequestWrapper implements
      */
     @Override
     public String getPathTranslated() {
-        return this._getHttpServletRequest().getPathTranslated();
+        return this._getDelegate(PATH_TRANSLATED).getPathTranslated();
     }
 
     /**
@@ -184,7 +342,7 @@ public class HttpServletRequestWrapper extends ServletRequestWrapper implements
      */
     @Override
     public String getContextPath() {
-        return this._getHttpServletRequest().getContextPath();
+        return this._getDelegate(CONTEXT_PATH).getContextPath();
     }
     
     /**
@@ -192,7 +350,7 @@ public class HttpServletRequestWrapper extends ServletRequestWrapper implements
      */
     @Override
     public String getQueryString() {
-        return this._getHttpServletRequest().getQueryString();
+        return this._getDelegate(QUERY_STRING).getQueryString();
     }
     
     /**
@@ -200,7 +358,7 @@ public class HttpServletRequestWrapper extends ServletRequestWrapper implements
      */
     @Override
     public String getRemoteUser() {
-        return this._getHttpServletRequest().getRemoteUser();
+        return this._getDelegate(REMOTE_USER).getRemoteUser();
     }
     
     /**
@@ -208,7 +366,7 @@ public class HttpServletRequestWrapper extends ServletRequestWrapper implements
      */
     @Override
     public boolean isUserInRole(String role) {
-        return this._getHttpServletRequest().isUserInRole(role);
+        return this._getDelegate(USER_IN_ROLE).isUserInRole(role);
     }
     
     /**
@@ -216,7 +374,7 @@ public class HttpServletRequestWrapper extends ServletRequestWrapper implements
      */
     @Override
     public java.security.Principal getUserPrincipal() {
-        return this._getHttpServletRequest().getUserPrincipal();
+        return this._getDelegate(USER_PRINCIPAL).getUserPrincipal();
     }
     
     /**
@@ -224,7 +382,7 @@ public class HttpServletRequestWrapper extends ServletRequestWrapper implements
      */
     @Override
     public String getRequestedSessionId() {
-        return this._getHttpServletRequest().getRequestedSessionId();
+        return this._getDelegate(REQUESTED_SESSION_ID).getRequestedSessionId();
     }
     
     /**
@@ -232,7 +390,7 @@ public class HttpServletRequestWrapper extends ServletRequestWrapper implements
      */
     @Override
     public String getRequestURI() {
-        return this._getHttpServletRequest().getRequestURI();
+        return this._getDelegate(REQUEST_URI).getRequestURI();
     }
 
     /**
@@ -240,7 +398,7 @@ public class HttpServletRequestWrapper extends ServletRequestWrapper implements
      */
     @Override
     public StringBuffer getRequestURL() {
-        return this._getHttpServletRequest().getRequestURL();
+        return this._getDelegate(REQUEST_URL).getRequestURL();
     }
         
     /**
@@ -248,7 +406,7 @@ public class HttpServletRequestWrapper extends ServletRequestWrapper implements
      */
     @Override
     public String getServletPath() {
-        return this._getHttpServletRequest().getServletPath();
+        return this._getDelegate(SERVLET_PATH).getServletPath();
     }
     
     /**
@@ -95,6 +95,25 @@ public interface HttpServletResponse extends ServletResponse {
      */
     public boolean containsHeader(String name);
 
+    /**
+     * 指定されたよく使われるレスポンスヘッダーがすでに設定されているかどうかを返します。
+     *
+     * <p>サーブレットコンテナはこのメソッドをオーバーライドして、名前の文字列を比較せずにヘッダーを参照できます。
+     *
+     * @implSpec デフォルト実装では{@code containsHeader(name.getName())}を返します。
+     *
+     * @param name ヘッダーの名前
+     *
+     * @return {@link #containsHeader(String)}と同じ値
+     *
+     * @see HttpHeaderName
+     *
+     * @since Servlet 4.0.1
+     */
+    default public boolean hasHeader(HttpHeaderName name) {
+        return containsHeader(name.getName());
+    }
+
     /**
      * 指定されたURLをセッションIDを含めてエンコードします。エンコードが不要な場合はURLをそのまま返します。
      * このメソッドの実装にはセッションIDをURLにエンコードする必要があるかどうかを判断するロジックが含まれています。
@@ -225,6 +244,24 @@ public interface HttpServletResponse extends ServletResponse {
      * @see #addDateHeader
      */
     public void setDateHeader(String name, long date);
+
+    /**
+     * 指定されたよく使われるレスポンスヘッダーに日付の値を設定します。
+     *
+     * <p>サーブレットコンテナはこのメソッドをオーバーライドして、名前の文字列を比較せずにヘッダーを参照できます。
+     *
+     * @implSpec デフォルト実装では{@code setDateHeader(name.getName(), date)}を呼び出します。
+     *
+     * @param name ヘッダーの名前
+     * @param date 1970 年 1 月 1 日 00:00:00 GMT からのミリ秒数で表された日付
+     *
+     * @see HttpHeaderName
+     *
+     * @since Servlet 4.0.1
+     */
+    default public void putDateHeader(HttpHeaderName name, long date) {
+        setDateHeader(name.getName(), date);
+    }
     
     /**
      * 指定された名前と日付値を持つレスポンスヘッダーを設定します。
@@ -251,6 +288,24 @@ public interface HttpServletResponse extends ServletResponse {
      * @see #addHeader
      */
     public void setHeader(String name, String value);
+
+    /**
+     * 指定されたよく使われるレスポンスヘッダーに値を設定します。
+     *
+     * <p>サーブレットコンテナはこのメソッドをオーバーライドして、名前の文字列を比較せずにヘッダーを参照できます。
+     *
+     * @implSpec デフォルト実装では{@code setHeader(name.getName(), value)}を呼び出します。
+     *
+     * @param name ヘッダーの名前
+     * @param value ヘッダーの値
+     *
+     * @see HttpHeaderName
+     *
+     * @since Servlet 4.0.1
+     */
+    default public void putHeader(HttpHeaderName name, String value) {
+        setHeader(name.getName(), value);
+    }
     
     /**
      * 指定された名前と値を持つレスポンスヘッダーを設定します。
@@ -264,6 +319,24 @@ public interface HttpServletResponse extends ServletResponse {
      */
     public void addHeader(String name, String value);
 
+    /**
+     * 指定されたよく使われるレスポンスヘッダーに値を追加します。
+     *
+     * <p>サーブレットコンテナはこのメソッドをオーバーライドして、名前の文字列を比較せずにヘッダーを参照できます。
+     *
+     * @implSpec デフォルト実装では{@code addHeader(name.getName(), value)}を呼び出します。
+     *
+     * @param name ヘッダーの名前
+     * @param value ヘッダーの値
+     *
+     * @see HttpHeaderName
+     *
+     * @since Servlet 4.0.1
+     */
+    default public void appendHeader(HttpHeaderName name, String value) {
+        addHeader(name.getName(), value);
+    }
+
     /**
      * 指定された名前と整数値を持つレスポンスヘッダーを設定します。
      * ヘッダーがすでに設定されている場合は新しい値が前の値を上書きします。 
@@ -277,6 +350,24 @@ public interface HttpServletResponse extends ServletResponse {
      */
     public void setIntHeader(String name, int value);
 
+    /**
+     * 指定されたよく使われるレスポンスヘッダーに整数の値を設定します。
+     *
+     * <p>サーブレットコンテナはこのメソッドをオーバーライドして、名前の文字列を比較せずにヘッダーを参照できます。
+     *
+     * @implSpec デフォルト実装では{@code setIntHeader(name.getName(), value)}を呼び出します。
+     *
+     * @param name ヘッダーの名前
+     * @param value ヘッダーの値
+     *
+     * @see HttpHeaderName
+     *
+     * @since Servlet 4.0.1
+     */
+    default public void putIntHeader(HttpHeaderName name, int value) {
+        setIntHeader(name.getName(), value);
+    }
+
     /**
      * 指定された名前と整数値を持つレスポンスヘッダーを設定します。
      * このメソッドはレスポンスヘッダーに複数の値を持たせることができます。
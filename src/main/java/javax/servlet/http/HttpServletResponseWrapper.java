@@ -77,6 +77,44 @@ import javax.servlet.ServletResponseWrapper;
 
 public class HttpServletResponseWrapper extends ServletResponseWrapper implements HttpServletResponse {
 
+    /*
+     * Methods listed here are routed by _getDelegate straight to the
+     * first object down the wrapper chain whose class implements them
+     * itself.
+     */
+    private static final WrapperDelegation DELEGATION =
+        new WrapperDelegation(HttpServletResponseWrapper.class);
+    private static final int CONTAINS_HEADER = DELEGATION.slot("containsHeader", String.class);
+    private static final int ENCODE_URL = DELEGATION.slot("encodeURL", String.class);
+    private static final int ENCODE_REDIRECT_URL = DELEGATION.slot("encodeRedirectURL", String.class);
+    private static final int SET_DATE_HEADER = DELEGATION.slot("setDateHeader", String.class, long.class);
+    private static final int ADD_DATE_HEADER = DELEGATION.slot("addDateHeader", String.class, long.class);
+    private static final int SET_HEADER = DELEGATION.slot("setHeader", String.class, String.class);
+    private static final int ADD_HEADER = DELEGATION.slot("addHeader", String.class, String.class);
+    private static final int SET_INT_HEADER = DELEGATION.slot("setIntHeader", String.class, int.class);
+    private static final int ADD_INT_HEADER = DELEGATION.slot("addIntHeader", String.class, int.class);
+    private static final int SET_STATUS = DELEGATION.slot("setStatus", int.class);
+    private static final int STATUS = DELEGATION.slot("getStatus");
+    private static final int HEADER = DELEGATION.slot("getHeader", String.class);
+    private static final int HEADERS = DELEGATION.slot("getHeaders", String.class);
+    private static final int HEADER_NAMES = DELEGATION.slot("getHeaderNames");
+    private static final int CONTAINS_HEADER_BY_NAME =
+        DELEGATION.alias(DELEGATION.slot("hasHeader", HttpHeaderName.class), CONTAINS_HEADER);
+    private static final int SET_DATE_HEADER_BY_NAME =
+        DELEGATION.alias(DELEGATION.slot("putDateHeader", HttpHeaderName.class, long.class), SET_DATE_HEADER);
+    private static final int SET_HEADER_BY_NAME =
+        DELEGATION.alias(DELEGATION.slot("putHeader", HttpHeaderName.class, String.class), SET_HEADER);
+    private static final int ADD_HEADER_BY_NAME =
+        DELEGATION.alias(DELEGATION.slot("appendHeader", HttpHeaderName.class, String.class), ADD_HEADER);
+    private static final int SET_INT_HEADER_BY_NAME =
+        DELEGATION.alias(DELEGATION.slot("putIntHeader", HttpHeaderName.class, int.class), SET_INT_HEADER);
+
+    /*
+     * The methods this wrapper's class implements itself, one bit per
+     * DELEGATION slot, looked up once per instance.
+     */
+    private final long overrides = DELEGATION.get(getClass());
+
     /** 
      * 指定されたレスポンスオブジェクトをラップするレスポンスアダプタを作成します。
      * @throws java.lang.IllegalArgumentException responseがnull
@@ -90,6 +128,28 @@ public class HttpServletResponseWrapper extends ServletResponseWrapper implement
     private HttpServletResponse _getHttpServletResponse() {
         return (HttpServletResponse) super.getResponse();
     }
+
+    /*
+     * Skips the wrappers below this one whose class does not implement
+     * the method itself; they would only forward the call. Each hop is a
+     * field read on a private, non-virtual path.
+     */
+    private HttpServletResponse _getDelegate(int method) {
+        long bit = 1L << method;
+        HttpServletResponse r = this._getHttpServletResponse();
+        while (r instanceof HttpServletResponseWrapper) {
+            HttpServletResponseWrapper w = (HttpServletResponseWrapper) r;
+            if ((w.overrides & bit) != 0) {
+                break;
+            }
+            r = w._getHttpServletResponse();
+        }
+        return r;
+    }
+
+    private boolean _overrides(int method) {
+        return (overrides & (1L << method)) != 0;
+    }
     
     /**
      * このメソッドのデフォルトの動作はラップされたレスポンスオブジェクトのaddCookie(Cookie cookie)を呼び出すことです。
@@ -104,7 +164,22 @@ public class HttpServletResponseWrapper extends ServletResponseWrapper implement
      */
     @Override
     public boolean containsHeader(String name) {
-        return this._getHttpServletResponse().containsHeader(name);
+        return this._getDelegate(CONTAINS_HEADER).containsHeader(name);
+    }
+
+    /**
+     * このメソッドのデフォルトの動作はラップされたレスポンスオブジェクトのhasHeader(HttpHeaderName name)を返すことです。
+     * ただし、このクラスのサブクラスがcontainsHeader(String name)だけをオーバーライドしている場合はcontainsHeader(name.getName())を返します。
+     *
+     * @since Servlet 4.0.1
+     */
+    @Override
+    public boolean hasHeader(HttpHeaderName name) {
+        if (_overrides(CONTAINS_HEADER)) {
+            return containsHeader(name.getName());
+        } else {
+            return this._getDelegate(CONTAINS_HEADER_BY_NAME).hasHeader(name);
+        }
     }
     
     /**
@@ -112,7 +187,7 @@ public class HttpServletResponseWrapper extends ServletResponseWrapper implement
      */
     @Override
     public String encodeURL(String url) {
-        return this._getHttpServletResponse().encodeURL(url);
+        return this._getDelegate(ENCODE_URL).encodeURL(url);
     }
 
     /**
@@ -120,7 +195,7 @@ public class HttpServletResponseWrapper extends ServletResponseWrapper implement
      */
     @Override
     public String encodeRedirectURL(String url) {
-        return this._getHttpServletResponse().encodeRedirectURL(url);
+        return this._getDelegate(ENCODE_REDIRECT_URL).encodeRedirectURL(url);
     }
 
     /**
@@ -174,7 +249,22 @@ public class HttpServletResponseWrapper extends ServletResponseWrapper implement
      */
     @Override
     public void setDateHeader(String name, long date) {
-        this._getHttpServletResponse().setDateHeader(name, date);
+        this._getDelegate(SET_DATE_HEADER).setDateHeader(name, date);
+    }
+
+    /**
+     * このメソッドのデフォルトの動作はラップされたレスポンスオブジェクトのputDateHeader(HttpHeaderName name, long date)を呼び出すことです。
+     * ただし、このクラスのサブクラスがsetDateHeader(String name, long date)だけをオーバーライドしている場合はsetDateHeader(name.getName(), date)を呼び出します。
+     *
+     * @since Servlet 4.0.1
+     */
+    @Override
+    public void putDateHeader(HttpHeaderName name, long date) {
+        if (_overrides(SET_DATE_HEADER)) {
+            setDateHeader(name.getName(), date);
+        } else {
+            this._getDelegate(SET_DATE_HEADER_BY_NAME).putDateHeader(name, date);
+        }
     }
     
     /**
@@ -182,7 +272,7 @@ public class HttpServletResponseWrapper extends ServletResponseWrapper implement
      */
     @Override
     public void addDateHeader(String name, long date) {
-        this._getHttpServletResponse().addDateHeader(name, date);
+        this._getDelegate(ADD_DATE_HEADER).addDateHeader(name, date);
     }
     
     /**
@@ -190,7 +280,22 @@ public class HttpServletResponseWrapper extends ServletResponseWrapper implement
      */
     @Override
     public void setHeader(String name, String value) {
-        this._getHttpServletResponse().setHeader(name, value);
+        this._getDelegate(SET_HEADER).setHeader(name, value);
+    }
+
+    /**
+     * このメソッドのデフォルトの動作はラップされたレスポンスオブジェクトのputHeader(HttpHeaderName name, String value)を呼び出すことです。
+     * ただし、このクラスのサブクラスがsetHeader(String name, String value)だけをオーバーライドしている場合はsetHeader(name.getName(), value)を呼び出します。
+     *
+     * @since Servlet 4.0.1
+     */
+    @Override
+    public void putHeader(HttpHeaderName name, String value) {
+        if (_overrides(SET_HEADER)) {
+            setHeader(name.getName(), value);
+        } else {
+            this._getDelegate(SET_HEADER_BY_NAME).putHeader(name, value);
+        }
     }
     
     /**
@@ -198,7 +303,22 @@ public class HttpServletResponseWrapper extends ServletResponseWrapper implement
      */
     @Override
     public void addHeader(String name, String value) {
-        this._getHttpServletResponse().addHeader(name, value);
+        this._getDelegate(ADD_HEADER).addHeader(name, value);
+    }
+
+    /**
+     * このメソッドのデフォルトの動作はラップされたレスポンスオブジェクトのappendHeader(HttpHeaderName name, String value)を呼び出すことです。
+     * ただし、このクラスのサブクラスがaddHeader(String name, String value)だけをオーバーライドしている場合はaddHeader(name.getName(), value)を呼び出します。
+     *
+     * @since Servlet 4.0.1
+     */
+    @Override
+    public void appendHeader(HttpHeaderName name, String value) {
+        if (_overrides(ADD_HEADER)) {
+            addHeader(name.getName(), value);
+        } else {
+            this._getDelegate(ADD_HEADER_BY_NAME).appendHeader(name, value);
+        }
     }
     
     /**
@@ -206,7 +326,22 @@ public class HttpServletResponseWrapper extends ServletResponseWrapper implement
      */
     @Override
     public void setIntHeader(String name, int value) {
-        this._getHttpServletResponse().setIntHeader(name, value);
+        this._getDelegate(SET_INT_HEADER).setIntHeader(name, value);
+    }
+
+    /**
+     * このメソッドのデフォルトの動作はラップされたレスポンスオブジェクトのputIntHeader(HttpHeaderName name, int value)を呼び出すことです。
+     * ただし、このクラスのサブクラスがsetIntHeader(String name, int value)だけをオーバーライドしている場合はsetIntHeader(name.getName(), value)を呼び出します。
+     *
+     * @since Servlet 4.0.1
+     */
+    @Override
+    public void putIntHeader(HttpHeaderName name, int value) {
+        if (_overrides(SET_INT_HEADER)) {
+            setIntHeader(name.getName(), value);
+        } else {
+            this._getDelegate(SET_INT_HEADER_BY_NAME).putIntHeader(name, value);
+        }
     }
     
     /**
@@ -214,7 +349,7 @@ public class HttpServletResponseWrapper extends ServletResponseWrapper implement
      */
     @Override
     public void addIntHeader(String name, int value) {
-        this._getHttpServletResponse().addIntHeader(name, value);
+        this._getDelegate(ADD_INT_HEADER).addIntHeader(name, value);
     }
 
     /**
@@ -222,7 +357,7 @@ public class HttpServletResponseWrapper extends ServletResponseWrapper implement
      */
     @Override
     public void setStatus(int sc) {
-        this._getHttpServletResponse().setStatus(sc);
+        this._getDelegate(SET_STATUS).setStatus(sc);
     }
     
     /**
@@ -245,7 +380,7 @@ public class HttpServletResponseWrapper extends ServletResponseWrapper implement
      */
     @Override
     public int getStatus() {
-        return _getHttpServletResponse().getStatus();
+        return _getDelegate(STATUS).getStatus();
     }
 
     /**
@@ -259,7 +394,7 @@ public class HttpServletResponseWrapper extends ServletResponseWrapper implement
      */
     @Override
     public String getHeader(String name) {
-        return _getHttpServletResponse().getHeader(name);
+        return _getDelegate(HEADER).getHeader(name);
     }
 
     /**
@@ -275,7 +410,7 @@ public class HttpServletResponseWrapper extends ServletResponseWrapper implement
      */                        
     @Override
     public Collection<String> getHeaders(String name) {
-        return _getHttpServletResponse().getHeaders(name);
+        return _getDelegate(HEADERS).getHeaders(name);
     }
 
     /**
@@ -289,7 +424,7 @@ public class HttpServletResponseWrapper extends ServletResponseWrapper implement
      */
     @Override
     public Collection<String> getHeaderNames() {
-        return _getHttpServletResponse().getHeaderNames();
+        return _getDelegate(HEADER_NAMES).getHeaderNames();
     }
 
     /**
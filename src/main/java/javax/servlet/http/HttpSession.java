@@ -58,7 +58,13 @@
 
 package javax.servlet.http;
 
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
 import javax.servlet.ServletContext;
 
 /**
@@ -221,6 +227,59 @@ public interface HttpSession {
     public String[] getValueNames();
     
 
+    /**
+     * このセッションに関連付けられたすべての名前とオブジェクトの変更不可能なスナップショットを返します。
+     *
+     * <p>サーブレットコンテナはこのメソッドをオーバーライドして、セッションのロックを一度だけ取得してスナップショットを作成できます。
+     *
+     * @implSpec デフォルト実装では{@link #getAttributeNames}で得た名前ごとに{@link #getAttribute}を呼び出し、
+     * その間に削除されたオブジェクトを除いて<code>Map</code>にまとめます。
+     *
+     * @return			名前をキーとし、オブジェクトを値とする変更不可能な<code>Map</code>
+     *
+     * @exception IllegalStateException	もしこのメソッドが無効なセッションで呼び出された場合
+     *
+     * @since Servlet 4.0.1
+     */
+    default public Map<String, Object> getAttributes() {
+        final Map<String, Object> attributes = new LinkedHashMap<>();
+        forEachAttribute(new BiConsumer<String, Object>() {
+            @Override
+            public void accept(String name, Object value) {
+                attributes.put(name, value);
+            }
+        });
+        return Collections.unmodifiableMap(attributes);
+    }
+
+
+    /**
+     * このセッションに関連付けられたすべての名前とオブジェクトについて、与えられた処理を実行します。
+     *
+     * <p>サーブレットコンテナはこのメソッドをオーバーライドして、名前の<code>Enumeration</code>を作らずにセッションのスナップショットを走査できます。
+     * 処理の中でこのセッションの属性を変更した場合の動作は実装に依存します。
+     *
+     * @implSpec デフォルト実装では{@link #getAttributeNames}で得た名前ごとに{@link #getAttribute}を呼び出し、
+     * <code>null</code>でないオブジェクトについて<code>action</code>を呼び出します。
+     *
+     * @param action		名前とオブジェクトを受け取る処理
+     *
+     * @exception IllegalStateException	もしこのメソッドが無効なセッションで呼び出された場合
+     *
+     * @since Servlet 4.0.1
+     */
+    default public void forEachAttribute(BiConsumer<? super String, ? super Object> action) {
+        Enumeration<String> names = getAttributeNames();
+        while (names.hasMoreElements()) {
+            String name = names.nextElement();
+            Object value = getAttribute(name);
+            if (value != null) {
+                action.accept(name, value);
+            }
+        }
+    }
+    
+
     /**
      * 指定された名前を使用して、このセッションにオブジェクトを追加します。
      * 同じ名前のオブジェクトが既にセッションに追加されている場合はオブジェクトが置き換えられます。
@@ -255,6 +314,28 @@ public interface HttpSession {
     public void putValue(String name, Object value);
 
 
+    /**
+     * 与えられた<code>Map</code>のすべての名前とオブジェクトをこのセッションに設定します。
+     *
+     * <p>各エントリーは{@link #setAttribute}と同じ意味を持ち、値が<code>null</code>のエントリーはその名前のオブジェクトを削除します。
+     * リスナーへの通知はエントリーごとに行われます。
+     * サーブレットコンテナはこのメソッドをオーバーライドして、セッションのロックを一度だけ取得してまとめて更新できます。
+     *
+     * @implSpec デフォルト実装では<code>attributes</code>の各エントリーについて{@link #setAttribute}を呼び出します。
+     *
+     * @param attributes		名前をキーとし、追加されるオブジェクトを値とする<code>Map</code>;キーにnullは含められない
+     *
+     * @exception IllegalStateException	もしこのメソッドが無効なセッションで呼び出された場合
+     *
+     * @since Servlet 4.0.1
+     */
+    default public void setAttributes(Map<String, ?> attributes) {
+        for (Map.Entry<String, ?> e : attributes.entrySet()) {
+            setAttribute(e.getKey(), e.getValue());
+        }
+    }
+
+
     /**
      * このセッションから指定された名前で存在するオブジェクトを削除します。 
      * セッションに指定された名前で存在するオブジェクトがない場合はこのメソッドは何も行いません。
@@ -301,5 +382,66 @@ public interface HttpSession {
      */
     public boolean isNew();
 
+
+    /**
+     * このセッションが属性の変更を記録しているかどうかを返します。
+     *
+     * <p>記録している場合、{@link #getChangedAttributeNames}は前回の{@link #checkpointAttributeChanges}以降に
+     * {@link #setAttribute}または{@link #removeAttribute}によって設定、置換、削除された属性の名前だけを返します。
+     * 記録はクラスタ化されたセッションの複製などのためにサーブレットコンテナが必要に応じて有効にします。
+     *
+     * @implSpec デフォルト実装では<code>false</code>を返します。
+     *
+     * @return 属性の変更を記録している場合は<code>true</code>
+     *
+     * @since Servlet 4.0.1
+     */
+    default public boolean isAttributeChangeTrackingEnabled() {
+        return false;
+    }
+
+
+    /**
+     * 前回の{@link #checkpointAttributeChanges}以降に設定、置換、削除された属性の名前を返します。
+     *
+     * <p>セッションに格納されたオブジェクトの内部の状態の変更は記録されません。
+     * そのような変更を複製の対象にするには、オブジェクトを同じ名前で再度{@link #setAttribute}する必要があります。
+     * 返された名前の属性が現在存在しない場合、その属性は削除されています。
+     *
+     * @implSpec デフォルト実装では変更を記録しないため、{@link #getAttributeNames}が返すすべての名前を含む変更不可能な<code>Set</code>を返します。属性の値は取得しないため、非活性化されたセッションでも値は復元されません。
+     * この場合は削除された属性の名前は含まれないため、呼び出し側はセッション全体を扱う必要があります。
+     *
+     * @return			変更された属性の名前の変更不可能な<code>Set</code>
+     *
+     * @exception IllegalStateException	もしこのメソッドが無効なセッションで呼び出された場合
+     *
+     * @see #isAttributeChangeTrackingEnabled
+     * @see HttpSessionAttributeBatchListener
+     *
+     * @since Servlet 4.0.1
+     */
+    default public Set<String> getChangedAttributeNames() {
+        Set<String> names = new LinkedHashSet<>();
+        for (Enumeration<String> e = getAttributeNames(); e.hasMoreElements(); ) {
+            names.add(e.nextElement());
+        }
+        return Collections.unmodifiableSet(names);
+    }
+
+
+    /**
+     * 属性の変更の記録を消去し、以降の変更だけが{@link #getChangedAttributeNames}で返されるようにします。
+     *
+     * <p>サーブレットコンテナはセッションを複製または永続化した後でこのメソッドを呼び出します。
+     *
+     * @implSpec デフォルト実装では何もしません。
+     *
+     * @exception IllegalStateException	もしこのメソッドが無効なセッションで呼び出された場合
+     *
+     * @since Servlet 4.0.1
+     */
+    default public void checkpointAttributeChanges() {
+    }
+
 }
 
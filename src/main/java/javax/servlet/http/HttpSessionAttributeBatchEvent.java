@@ -0,0 +1,124 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package javax.servlet.http;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * 1つのリクエストの間にセッションの属性に加えられた変更をまとめて{@link HttpSessionAttributeBatchListener}に通知するイベントです。
+ *
+ * <p>名前はそれぞれの集合のうち1つにだけ含まれ、リクエストの開始時と終了時の状態を比べた結果を表します。
+ * たとえばリクエストの中で追加されてから削除された属性はどの集合にも含まれません。
+ *
+ * @see HttpSessionAttributeBatchListener
+ * @see HttpSession#getChangedAttributeNames
+ *
+ * @since Servlet 4.0.1
+ */
+public class HttpSessionAttributeBatchEvent extends HttpSessionEvent {
+
+    private static final long serialVersionUID = 3189526813487622304L;
+
+    private final Set<String> added;
+    private final Set<String> replaced;
+    private final Set<String> removed;
+
+    /**
+     * セッションの属性の変更をまとめたイベントを生成します。
+     *
+     * @param source 属性が変更されたセッション
+     * @param added 追加された属性の名前
+     * @param replaced 値が置き換えられた属性の名前
+     * @param removed 削除された属性の名前
+     */
+    public HttpSessionAttributeBatchEvent(HttpSession source,
+            Set<String> added, Set<String> replaced, Set<String> removed) {
+        super(source);
+        this.added = copy(added);
+        this.replaced = copy(replaced);
+        this.removed = copy(removed);
+    }
+
+    private static Set<String> copy(Set<String> names) {
+        if (names == null || names.isEmpty()) {
+            return Collections.emptySet();
+        }
+        return Collections.unmodifiableSet(new LinkedHashSet<>(names));
+    }
+
+    /**
+     * 追加された属性の名前を返します。
+     *
+     * @return 追加された属性の名前の変更不可能な集合
+     */
+    public Set<String> getAddedAttributeNames() {
+        return added;
+    }
+
+    /**
+     * 値が置き換えられた属性の名前を返します。
+     *
+     * @return 値が置き換えられた属性の名前の変更不可能な集合
+     */
+    public Set<String> getReplacedAttributeNames() {
+        return replaced;
+    }
+
+    /**
+     * 削除された属性の名前を返します。
+     *
+     * @return 削除された属性の名前の変更不可能な集合
+     */
+    public Set<String> getRemovedAttributeNames() {
+        return removed;
+    }
+
+    /**
+     * このイベントが変更を含んでいるかどうかを返します。
+     *
+     * @return 追加、置換、削除された属性が1つもない場合はtrue
+     */
+    public boolean isEmpty() {
+        return added.isEmpty() && replaced.isEmpty() && removed.isEmpty();
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package javax.servlet.http;
+
+import java.util.EventListener;
+
+/**
+ * セッションの属性の変更をリクエストごとにまとめて受け取るためのインターフェースです。
+ *
+ * <p>{@link HttpSessionAttributeListener}が変更のたびに通知を受けるのに対して、
+ * このインターフェースの実装はセッションの属性が変更されたリクエストの終了時に一度だけ、
+ * 変更された属性の名前をまとめた{@link HttpSessionAttributeBatchEvent}を受け取ります。
+ * クラスタ化されたセッションの複製のように、変更された属性だけを扱えばよい処理に使用します。
+ *
+ * <p>通知イベントを受け取るためには、実装クラスをWebアプリケーションのデプロイメントディスクリプタで宣言するか、
+ * {@link javax.servlet.annotation.WebListener}アノテーションを付けるか、
+ * {@link javax.servlet.ServletContext}で定義されているaddListenerメソッドの1つを使って登録する必要があります。
+ *
+ * <p>このインターフェースの実装が呼び出される順序は定義されていません。
+ *
+ * @see HttpSession#getChangedAttributeNames
+ *
+ * @since Servlet 4.0.1
+ */
+public interface HttpSessionAttributeBatchListener extends EventListener {
+
+    /**
+     * リクエストの間に加えられたセッションの属性の変更の通知を受け取ります。
+     *
+     * <p>この通知は個々の{@link HttpSessionAttributeListener}への通知がすべて済んだ後に、
+     * セッションの属性が変更されたリクエストについてだけ送信されます。
+     *
+     * @param event セッションと、変更された属性の名前を含むHttpSessionAttributeBatchEvent
+     */
+    public void attributesChanged(HttpSessionAttributeBatchEvent event);
+
+}
@@ -51,6 +51,8 @@ import java.util.EventListener;
  * 
  * <p>このインターフェースの実装が呼び出される順序は定義されていません。
  *
+ * @see SessionIdGenerator
+ *
  * @since Servlet 3.1
  */
 
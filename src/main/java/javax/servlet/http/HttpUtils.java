@@ -97,6 +97,8 @@ public class HttpUtils {
      * @return		解析されたキーと値のペアで構築された <code>HashTable</code>
      *
      * @exception IllegalArgumentException クエリ文字列が不正だった
+     *
+     * @see UrlEncodedParser
      */
     public static Hashtable<String, String[]> parseQueryString(String s) {
 
@@ -153,6 +155,8 @@ public class HttpUtils {
      * @return		解析されたキーと値のペアで構築された <code>HashTable</code>
      *
      * @exception IllegalArgumentException POSTメソッドによって送られたデータが不正だった
+     *
+     * @see UrlEncodedFormDecoder
      */
     public static Hashtable<String, String[]> parsePostData(int len, 
                 ServletInputStream in) {
@@ -0,0 +1,219 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package javax.servlet.http;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+
+/**
+ * 不変で再利用可能な{@link HttpServletMapping}の実装です。
+ *
+ * <p>サーブレット名、パターン、{@link MappingMatch}の組は{@link #of}によって共有され、
+ * {@link MappingMatch#CONTEXT_ROOT}、{@link MappingMatch#DEFAULT}、{@link MappingMatch#EXACT}のマッピングは組ごとに1つのインスタンスが返されます。
+ * これらのマッピングの一致した値はパターンから決まるため、リクエストやディスパッチのたびにオブジェクトを生成する必要はありません。
+ * 共有は弱参照で行われるため、どこからも参照されなくなったインスタンスは、アプリケーションの配備の解除などの後でガベージコレクトされます。
+ *
+ * <p>{@link MappingMatch#PATH}と{@link MappingMatch#EXTENSION}のマッピングでは、
+ * {@link #of}が返すインスタンスを雛形として{@link #withMatchValue}で一致した値だけを持つインスタンスを作ります。
+ * 作られたインスタンスは共有された組への参照と一致した値だけを保持します。
+ *
+ * <p>このクラスのインスタンスは不変でスレッドセーフです。
+ *
+ * @see ServletMappingMatcher
+ *
+ * @since Servlet 4.0.1
+ */
+public final class ImmutableHttpServletMapping implements HttpServletMapping {
+
+    /*
+     * Canonical instances by (servletName, pattern, mappingMatch). Both the
+     * key and the value are weak: the canonical instance holds its own key,
+     * so an entry lives exactly as long as some mapping with that
+     * descriptor is reachable. of() runs when mappings are built, not per
+     * request, so a plain lock is enough.
+     */
+    private static final Map<Descriptor, WeakReference<ImmutableHttpServletMapping>> INTERNED =
+        new WeakHashMap<>();
+
+    /*
+     * The shared part of a mapping.
+     */
+    private static final class Descriptor {
+
+        final String servletName;
+        final String pattern;
+        final MappingMatch mappingMatch;
+
+        Descriptor(String servletName, String pattern, MappingMatch mappingMatch) {
+            this.servletName = servletName;
+            this.pattern = pattern;
+            this.mappingMatch = mappingMatch;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Descriptor)) {
+                return false;
+            }
+            Descriptor d = (Descriptor) o;
+            return mappingMatch == d.mappingMatch
+                && pattern.equals(d.pattern)
+                && servletName.equals(d.servletName);
+        }
+
+        @Override
+        public int hashCode() {
+            return (servletName.hashCode() * 31 + pattern.hashCode()) * 31
+                + mappingMatch.hashCode();
+        }
+    }
+
+    private final Descriptor descriptor;
+    private final String matchValue;
+
+    private ImmutableHttpServletMapping(Descriptor descriptor, String matchValue) {
+        this.descriptor = descriptor;
+        this.matchValue = matchValue;
+    }
+
+    /**
+     * 与えられたサーブレット名、パターン、{@link MappingMatch}の組に対応する共有されたインスタンスを返します。
+     *
+     * <p>同じ組に対する呼び出しは、返されたインスタンスが参照されている間は同じインスタンスを返します。
+     *
+     * <p>一致した値は、{@link MappingMatch#EXACT}の場合は先頭のスラッシュを除いたパターン、それ以外の場合は空の文字列です。
+     * {@link MappingMatch#PATH}と{@link MappingMatch#EXTENSION}の場合は、{@link #withMatchValue}で一致した値を与えてください。
+     *
+     * @param servletName サーブレット名
+     * @param pattern {@link HttpServletMapping#getPattern}が返すパターン
+     * @param mappingMatch マッピングの種類
+     *
+     * @return 共有されたインスタンス
+     *
+     * @throws NullPointerException いずれかの引数がnullの場合
+     */
+    public static ImmutableHttpServletMapping of(String servletName,
+            String pattern, MappingMatch mappingMatch) {
+        Descriptor d = new Descriptor(Objects.requireNonNull(servletName),
+            Objects.requireNonNull(pattern), Objects.requireNonNull(mappingMatch));
+        synchronized (INTERNED) {
+            WeakReference<ImmutableHttpServletMapping> ref = INTERNED.get(d);
+            ImmutableHttpServletMapping m = (ref == null) ? null : ref.get();
+            if (m == null) {
+                String matchValue = "";
+                if (mappingMatch == MappingMatch.EXACT) {
+                    matchValue = pattern.startsWith("/") ? pattern.substring(1) : pattern;
+                }
+                m = new ImmutableHttpServletMapping(d, matchValue);
+                // Key the entry by the instance's own descriptor so that it
+                // stays reachable through the value; put() would keep a
+                // stale equal key.
+                INTERNED.remove(d);
+                INTERNED.put(d, new WeakReference<>(m));
+            }
+            return m;
+        }
+    }
+
+    /**
+     * このインスタンスと同じサーブレット名、パターン、{@link MappingMatch}を持ち、一致した値だけが異なるインスタンスを返します。
+     *
+     * @param matchValue 一致した値
+     *
+     * @return 一致した値が{@code matchValue}のインスタンス。一致した値が等しい場合はこのインスタンス
+     *
+     * @throws NullPointerException {@code matchValue}がnullの場合
+     */
+    public ImmutableHttpServletMapping withMatchValue(String matchValue) {
+        if (this.matchValue.equals(matchValue)) {
+            return this;
+        }
+        return new ImmutableHttpServletMapping(descriptor,
+            Objects.requireNonNull(matchValue));
+    }
+
+    @Override
+    public String getMatchValue() {
+        return matchValue;
+    }
+
+    @Override
+    public String getPattern() {
+        return descriptor.pattern;
+    }
+
+    @Override
+    public String getServletName() {
+        return descriptor.servletName;
+    }
+
+    @Override
+    public MappingMatch getMappingMatch() {
+        return descriptor.mappingMatch;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ImmutableHttpServletMapping)) {
+            return false;
+        }
+        ImmutableHttpServletMapping m = (ImmutableHttpServletMapping) o;
+        return matchValue.equals(m.matchValue) && descriptor.equals(m.descriptor);
+    }
+
+    @Override
+    public int hashCode() {
+        return descriptor.hashCode() * 31 + matchValue.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "HttpServletMapping [matchValue=" + matchValue
+            + ", pattern=" + descriptor.pattern
+            + ", servletName=" + descriptor.servletName
+            + ", mappingMatch=" + descriptor.mappingMatch + "]";
+    }
+}
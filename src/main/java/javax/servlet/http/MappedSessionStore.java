@@ -0,0 +1,660 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package javax.servlet.http;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ResourceBundle;
+import java.util.function.BiConsumer;
+
+/**
+ * メモリマップトファイルにセッションを保存する{@link SessionStore}の参照実装です。
+ *
+ * <p>セッションの状態も、セッションIDからその位置を求めるハッシュ表も、すべてJavaヒープの外にあるマップされたファイルの中に置かれます。
+ * このため、保存されたセッションの数が数百万になってもヒープ上のオブジェクトは増えず、ガベージコレクションの停止時間に影響しません。
+ * ファイルは疎なファイルとして作成され、実際に使われた領域だけがディスクとページキャッシュを消費します。
+ *
+ * <p>ファイルは固定長のスロットを並べた表と、スロットに収まらない属性のための固定長のブロックの領域からなります。
+ * 表はスレッドの競合を減らすために複数のセグメントに分割され、各セグメントはそれぞれのロックで保護されるため、
+ * 異なるセグメントのセッションは並行に読み書きされます。ブロックの領域はすべてのセグメントで共有されます。
+ *
+ * <p>容量は生成時に決まり、拡張されません。
+ * セッションはIDのハッシュ値によってセグメントに振り分けられるため、セグメントごとのセッションの数には偏りが生じます。
+ * 各セグメントには、<code>maxSessions</code>個のセッションが一様に振り分けられた場合の平均に、その標準偏差の6倍を加えた数を保存できる大きさが確保されます。
+ * このため、ハッシュ値が一様に分布するセッションIDであれば、<code>maxSessions</code>個までのセッションが偏りによって拒否されることは事実上ありません。
+ * 属性の合計が<code>overflowCapacity</code>を超える場合は、セッションの数に関わらず保存が拒否されます。
+ *
+ * <p>ファイルの内容は生成したインスタンスの中でだけ有効です。生成時に既存のファイルの内容は破棄され、
+ * 一時ファイルを使用した場合は{@link #close}で削除されます。
+ *
+ * @since Servlet 4.0.1
+ */
+public final class MappedSessionStore implements SessionStore {
+
+    private static final String LSTRING_FILE =
+        "javax.servlet.http.LocalStrings";
+    private static final ResourceBundle lStrings =
+        ResourceBundle.getBundle(LSTRING_FILE);
+
+    private static final int DEFAULT_SLOT_SIZE = 256;
+    private static final int MIN_SLOT_SIZE = 64;
+    private static final int MAX_SEGMENTS = 64;
+    private static final int MIN_SEGMENT_SLOTS = 16;
+
+    /* Expected sessions per segment below which fewer segments are used. */
+    private static final int SESSIONS_PER_SEGMENT = 1024;
+
+    /* Upper bound for one mapping of the shared block area. */
+    private static final int MAX_CHUNK_BYTES = 1 << 30;
+
+    /*
+     * Slot layout. A slot whose id length is zero is empty; session ids are
+     * never empty. Attribute bytes follow the id inline and continue in a
+     * chain of blocks when they do not fit.
+     */
+    private static final int SLOT_HASH = 0;
+    private static final int SLOT_ID_LENGTH = 4;
+    private static final int SLOT_CREATION_TIME = 8;
+    private static final int SLOT_LAST_ACCESSED_TIME = 16;
+    private static final int SLOT_MAX_INACTIVE_INTERVAL = 24;
+    private static final int SLOT_DATA_LENGTH = 28;
+    private static final int SLOT_FIRST_BLOCK = 32;
+    private static final int SLOT_HEADER = 36;
+
+    /* Block layout: the index of the next block (or -1) and the payload. */
+    private static final int BLOCK_NEXT = 0;
+    private static final int BLOCK_HEADER = 4;
+
+    private final FileChannel channel;
+    private final Path file;
+    private final boolean temporary;
+    private final int slotSize;
+    private final int segmentShift;
+    private final Segment[] segments;
+    private final BlockPool blocks;
+    private int scanSegment;
+    private volatile boolean closed;
+
+    /**
+     * 一時ファイルを使用して、指定された数のセッションを保存できるストアを生成します。
+     *
+     * @param maxSessions 保存するセッションの数
+     *
+     * @throws IOException ファイルの作成またはマップに失敗した場合
+     * @throws IllegalArgumentException <code>maxSessions</code>が正でない場合
+     */
+    public MappedSessionStore(int maxSessions) throws IOException {
+        this(null, maxSessions);
+    }
+
+    /**
+     * 指定されたファイルを使用して、指定された数のセッションを保存できるストアを生成します。
+     *
+     * <p>スロットの大きさは256バイトで、属性のためにセッション1つあたり平均してさらに1スロット分の領域が確保されます。
+     *
+     * @param file 使用するファイル、<code>null</code>の場合は一時ファイル
+     * @param maxSessions 保存するセッションの数
+     *
+     * @throws IOException ファイルの作成またはマップに失敗した場合
+     * @throws IllegalArgumentException <code>maxSessions</code>が正でない場合
+     */
+    public MappedSessionStore(Path file, int maxSessions) throws IOException {
+        this(file, maxSessions, DEFAULT_SLOT_SIZE, (long) maxSessions * DEFAULT_SLOT_SIZE);
+    }
+
+    /**
+     * 指定されたファイルを使用して、指定された数のセッションを保存できるストアを生成します。
+     *
+     * <p>セッションIDと属性のうちスロットに収まる部分はスロットに直接格納され、残りは<code>slotSize</code>バイトのブロックに格納されます。
+     * 属性が小さいセッションがほとんどの場合は、スロットを大きくするとブロックを辿る必要がなくなります。
+     *
+     * @param file 使用するファイル、<code>null</code>の場合は一時ファイル
+     * @param maxSessions 保存するセッションの数
+     * @param slotSize スロットとブロックのバイト数、64以上の8の倍数
+     * @param overflowCapacity スロットに収まらない属性のために確保するバイト数の合計
+     *
+     * @throws IOException ファイルの作成またはマップに失敗した場合
+     * @throws IllegalArgumentException 引数が範囲外の場合、またはセグメントが2GBを超える場合
+     */
+    public MappedSessionStore(Path file, int maxSessions, int slotSize,
+                              long overflowCapacity) throws IOException {
+        if (maxSessions <= 0 || maxSessions > (1 << 29)
+                || slotSize < MIN_SLOT_SIZE || (slotSize & 7) != 0
+                || overflowCapacity < 0) {
+            throw new IllegalArgumentException(MessageFormat.format(
+                lStrings.getString("err.store.invalid_capacity"),
+                maxSessions, slotSize, overflowCapacity));
+        }
+        int segmentCount = Math.min(MAX_SEGMENTS, Integer.highestOneBit(
+            Math.max(1, maxSessions / SESSIONS_PER_SEGMENT)));
+        // Room for the mean load plus six standard deviations of hash skew,
+        // kept under the 7/8 load limit of a segment.
+        double mean = (double) maxSessions / segmentCount;
+        long needed = segmentCount == 1 ? maxSessions
+            : (long) Math.ceil(mean + 6 * Math.sqrt(mean));
+        long minSlots = Math.max(MIN_SEGMENT_SLOTS, (needed * 8 + 6) / 7 + 1);
+        long slots = Long.highestOneBit(minSlots * 2 - 1);
+        long segmentBytes = slots * slotSize;
+        if (segmentBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(MessageFormat.format(
+                lStrings.getString("err.store.too_large"),
+                segmentBytes, Integer.MAX_VALUE));
+        }
+        long blockPayload = slotSize - BLOCK_HEADER;
+        long blockCount = (overflowCapacity + blockPayload - 1) / blockPayload;
+        if (blockCount > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(MessageFormat.format(
+                lStrings.getString("err.store.invalid_capacity"),
+                maxSessions, slotSize, overflowCapacity));
+        }
+
+        this.temporary = file == null;
+        this.file = temporary ? Files.createTempFile("sessions", ".store") : file;
+        this.slotSize = slotSize;
+        this.segmentShift = 32 - Integer.numberOfTrailingZeros(segmentCount);
+        this.channel = FileChannel.open(this.file, StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            int blocksPerChunk = MAX_CHUNK_BYTES / slotSize;
+            int chunkCount = (int) ((blockCount + blocksPerChunk - 1) / blocksPerChunk);
+            MappedByteBuffer[] chunks = new MappedByteBuffer[chunkCount];
+            long offset = segmentCount * segmentBytes;
+            for (int i = 0; i < chunkCount; i++) {
+                long size = Math.min(blocksPerChunk, blockCount - (long) i * blocksPerChunk)
+                            * slotSize;
+                chunks[i] = map(offset, size);
+                offset += size;
+            }
+            this.blocks = new BlockPool(chunks, blocksPerChunk, (int) blockCount);
+            this.segments = new Segment[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                segments[i] = new Segment(i, map(i * segmentBytes, segmentBytes), (int) slots);
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            if (temporary) {
+                Files.deleteIfExists(this.file);
+            }
+            throw e;
+        }
+    }
+
+    private MappedByteBuffer map(long offset, long size) throws IOException {
+        MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_WRITE, offset, size);
+        buf.order(ByteOrder.nativeOrder());
+        return buf;
+    }
+
+    @Override
+    public SessionData load(String id) throws IOException {
+        byte[] key = key(id);
+        int hash = hash(key);
+        Segment seg = segmentFor(hash);
+        synchronized (seg) {
+            ensureOpen();
+            int slot = seg.find(hash, key);
+            return slot < 0 ? null : seg.read(slot);
+        }
+    }
+
+    @Override
+    public void save(String id, SessionData data) throws IOException {
+        byte[] key = key(id);
+        int hash = hash(key);
+        Segment seg = segmentFor(hash);
+        synchronized (seg) {
+            ensureOpen();
+            seg.write(hash, key, data);
+        }
+    }
+
+    @Override
+    public boolean touch(String id, long lastAccessedTime) throws IOException {
+        byte[] key = key(id);
+        int hash = hash(key);
+        Segment seg = segmentFor(hash);
+        synchronized (seg) {
+            ensureOpen();
+            int slot = seg.find(hash, key);
+            if (slot < 0) {
+                return false;
+            }
+            seg.buf.putLong(slot * slotSize + SLOT_LAST_ACCESSED_TIME, lastAccessedTime);
+            return true;
+        }
+    }
+
+    @Override
+    public boolean expire(String id) throws IOException {
+        byte[] key = key(id);
+        int hash = hash(key);
+        Segment seg = segmentFor(hash);
+        synchronized (seg) {
+            ensureOpen();
+            int slot = seg.find(hash, key);
+            if (slot < 0) {
+                return false;
+            }
+            seg.remove(slot);
+            return true;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>このストアは前回の呼び出しが終わった位置から表を順に走査し、1回の呼び出しで各スロットを高々1回ずつ調べます。
+     * 走査の間は走査中のセグメントだけがロックされ、<code>action</code>はロックを解放してから呼び出されます。
+     */
+    @Override
+    public int expire(long now, int limit,
+                      BiConsumer<? super String, ? super SessionData> action) throws IOException {
+        List<String> ids = new ArrayList<>();
+        List<SessionData> expired = new ArrayList<>();
+        int start;
+        synchronized (segments) {
+            start = scanSegment;
+        }
+        int next = start;
+        for (int n = 0; n < segments.length && expired.size() < limit; n++) {
+            next = (start + n) % segments.length;
+            Segment seg = segments[next];
+            synchronized (seg) {
+                ensureOpen();
+                if (!seg.scan(now, limit, ids, expired)) {
+                    break;
+                }
+            }
+            next = (next + 1) % segments.length;
+        }
+        synchronized (segments) {
+            scanSegment = next;
+        }
+        for (int i = 0; i < ids.size(); i++) {
+            action.accept(ids.get(i), expired.get(i));
+        }
+        return ids.size();
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Segment seg : segments) {
+            size += seg.count;
+        }
+        return size;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>マップされた領域はこのインスタンスがガベージコレクトされたときに解放されます。
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        for (Segment seg : segments) {
+            synchronized (seg) {
+                closed = true;
+            }
+        }
+        try {
+            channel.close();
+        } finally {
+            if (temporary) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException(lStrings.getString("err.store.closed"));
+        }
+    }
+
+    private byte[] key(String id) {
+        byte[] key = id.getBytes(StandardCharsets.UTF_8);
+        if (key.length == 0 || key.length > slotSize - SLOT_HEADER) {
+            throw new IllegalArgumentException(MessageFormat.format(
+                lStrings.getString("err.store.invalid_id"), id));
+        }
+        return key;
+    }
+
+    private static int hash(byte[] key) {
+        int h = 0;
+        for (byte b : key) {
+            h = 31 * h + b;
+        }
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private Segment segmentFor(int hash) {
+        return segments[segmentShift == 32 ? 0 : hash >>> segmentShift];
+    }
+
+    /*
+     * The overflow blocks shared by all segments. The free list and the
+     * allocation counters are guarded by the pool's monitor. A block that
+     * belongs to a session's chain is only touched by the segment holding
+     * that session, under the segment's monitor; the pool only links and
+     * unlinks blocks while they are being handed over.
+     */
+    private final class BlockPool {
+
+        final MappedByteBuffer[] chunks;
+        final int blocksPerChunk;
+        final int blocks;
+        int freeBlock = -1;
+        int freeBlocks;
+        int unusedBlock;
+
+        BlockPool(MappedByteBuffer[] chunks, int blocksPerChunk, int blocks) {
+            this.chunks = chunks;
+            this.blocksPerChunk = blocksPerChunk;
+            this.blocks = blocks;
+        }
+
+        private int next(int b) {
+            return chunks[b / blocksPerChunk].getInt(
+                (b % blocksPerChunk) * slotSize + BLOCK_NEXT);
+        }
+
+        private void setNext(int b, int next) {
+            chunks[b / blocksPerChunk].putInt(
+                (b % blocksPerChunk) * slotSize + BLOCK_NEXT, next);
+        }
+
+        /*
+         * Replaces the chain starting at head (or -1) with a chain of n
+         * blocks linked in order and returns its first block, or -1 when n
+         * is zero. The old chain is kept if there is not enough room.
+         */
+        synchronized int reallocate(int head, int n, int dataLength) throws IOException {
+            int held = 0;
+            for (int b = head; b >= 0; b = next(b)) {
+                held++;
+            }
+            if (n > held + freeBlocks + (blocks - unusedBlock)) {
+                throw new IOException(MessageFormat.format(
+                    lStrings.getString("err.store.overflow"), dataLength));
+            }
+            release(head);
+            int first = -1;
+            int prev = -1;
+            for (int i = 0; i < n; i++) {
+                int b;
+                if (freeBlock >= 0) {
+                    b = freeBlock;
+                    freeBlock = next(b);
+                    freeBlocks--;
+                } else {
+                    b = unusedBlock++;
+                }
+                if (prev < 0) {
+                    first = b;
+                } else {
+                    setNext(prev, b);
+                }
+                prev = b;
+            }
+            if (prev >= 0) {
+                setNext(prev, -1);
+            }
+            return first;
+        }
+
+        synchronized void free(int head) {
+            release(head);
+        }
+
+        private void release(int b) {
+            while (b >= 0) {
+                int next = next(b);
+                setNext(b, freeBlock);
+                freeBlock = b;
+                freeBlocks++;
+                b = next;
+            }
+        }
+    }
+
+    /*
+     * One open-addressed table with linear probing and backward-shift
+     * deletion. All fields are guarded by the segment's monitor; count is
+     * volatile only so that size() can read it without locking. The
+     * segment reads and writes block payloads through its own views of the
+     * shared chunks, so that positioned bulk transfers never interfere
+     * with another segment.
+     */
+    private final class Segment {
+
+        final int index;
+        final MappedByteBuffer buf;
+        final ByteBuffer[] blockViews;
+        final int slots;
+        final int mask;
+        final int limit;
+        volatile int count;
+        int scan;
+
+        Segment(int index, MappedByteBuffer buf, int slots) {
+            this.index = index;
+            this.buf = buf;
+            this.slots = slots;
+            this.mask = slots - 1;
+            this.limit = slots - (slots >>> 3);
+            this.blockViews = new ByteBuffer[blocks.chunks.length];
+            for (int i = 0; i < blockViews.length; i++) {
+                blockViews[i] = blocks.chunks[i].duplicate().order(ByteOrder.nativeOrder());
+            }
+        }
+
+        int find(int hash, byte[] key) {
+            for (int i = hash & mask; ; i = (i + 1) & mask) {
+                int off = i * slotSize;
+                int len = buf.getInt(off + SLOT_ID_LENGTH);
+                if (len == 0) {
+                    return -1;
+                }
+                if (len == key.length && buf.getInt(off + SLOT_HASH) == hash
+                        && keyEquals(off + SLOT_HEADER, key)) {
+                    return i;
+                }
+            }
+        }
+
+        private boolean keyEquals(int off, byte[] key) {
+            for (int i = 0; i < key.length; i++) {
+                if (buf.get(off + i) != key[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        SessionData read(int slot) {
+            int off = slot * slotSize;
+            int idLength = buf.getInt(off + SLOT_ID_LENGTH);
+            byte[] data = new byte[buf.getInt(off + SLOT_DATA_LENGTH)];
+            int inline = Math.min(data.length, slotSize - SLOT_HEADER - idLength);
+            get(buf, off + SLOT_HEADER + idLength, data, 0, inline);
+            int pos = inline;
+            for (int b = buf.getInt(off + SLOT_FIRST_BLOCK); pos < data.length; ) {
+                ByteBuffer view = blockViews[b / blocks.blocksPerChunk];
+                int boff = (b % blocks.blocksPerChunk) * slotSize;
+                int n = Math.min(data.length - pos, slotSize - BLOCK_HEADER);
+                get(view, boff + BLOCK_HEADER, data, pos, n);
+                pos += n;
+                b = view.getInt(boff + BLOCK_NEXT);
+            }
+            return new SessionData(buf.getLong(off + SLOT_CREATION_TIME),
+                                   buf.getLong(off + SLOT_LAST_ACCESSED_TIME),
+                                   buf.getInt(off + SLOT_MAX_INACTIVE_INTERVAL),
+                                   data);
+        }
+
+        String readId(int slot) {
+            int off = slot * slotSize;
+            byte[] key = new byte[buf.getInt(off + SLOT_ID_LENGTH)];
+            get(buf, off + SLOT_HEADER, key, 0, key.length);
+            return new String(key, StandardCharsets.UTF_8);
+        }
+
+        void write(int hash, byte[] key, SessionData data) throws IOException {
+            byte[] bytes = data.getAttributeBytes();
+            int inline = Math.min(bytes.length, slotSize - SLOT_HEADER - key.length);
+            int payload = slotSize - BLOCK_HEADER;
+            int needed = (bytes.length - inline + payload - 1) / payload;
+
+            int slot = find(hash, key);
+            if (slot < 0 && count >= limit) {
+                throw new IOException(MessageFormat.format(
+                    lStrings.getString("err.store.full"), index, count));
+            }
+            int oldChain = slot < 0 ? -1 : buf.getInt(slot * slotSize + SLOT_FIRST_BLOCK);
+            int chain = blocks.reallocate(oldChain, needed, bytes.length);
+            if (slot < 0) {
+                slot = hash & mask;
+                while (buf.getInt(slot * slotSize + SLOT_ID_LENGTH) != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                count++;
+            }
+
+            int off = slot * slotSize;
+            buf.putInt(off + SLOT_HASH, hash);
+            buf.putInt(off + SLOT_ID_LENGTH, key.length);
+            buf.putLong(off + SLOT_CREATION_TIME, data.getCreationTime());
+            buf.putLong(off + SLOT_LAST_ACCESSED_TIME, data.getLastAccessedTime());
+            buf.putInt(off + SLOT_MAX_INACTIVE_INTERVAL, data.getMaxInactiveInterval());
+            buf.putInt(off + SLOT_DATA_LENGTH, bytes.length);
+            buf.putInt(off + SLOT_FIRST_BLOCK, chain);
+            put(buf, off + SLOT_HEADER, key, 0, key.length);
+            put(buf, off + SLOT_HEADER + key.length, bytes, 0, inline);
+
+            int pos = inline;
+            for (int b = chain; b >= 0; ) {
+                ByteBuffer view = blockViews[b / blocks.blocksPerChunk];
+                int boff = (b % blocks.blocksPerChunk) * slotSize;
+                int n = Math.min(bytes.length - pos, payload);
+                put(view, boff + BLOCK_HEADER, bytes, pos, n);
+                pos += n;
+                b = view.getInt(boff + BLOCK_NEXT);
+            }
+        }
+
+        void remove(int slot) {
+            blocks.free(buf.getInt(slot * slotSize + SLOT_FIRST_BLOCK));
+            int hole = slot;
+            for (int i = (slot + 1) & mask; ; i = (i + 1) & mask) {
+                int off = i * slotSize;
+                if (buf.getInt(off + SLOT_ID_LENGTH) == 0) {
+                    break;
+                }
+                int home = buf.getInt(off + SLOT_HASH) & mask;
+                if (((i - home) & mask) >= ((i - hole) & mask)) {
+                    int dst = hole * slotSize;
+                    for (int k = 0; k < slotSize; k += 8) {
+                        buf.putLong(dst + k, buf.getLong(off + k));
+                    }
+                    hole = i;
+                }
+            }
+            buf.putInt(hole * slotSize + SLOT_ID_LENGTH, 0);
+            count--;
+        }
+
+        /*
+         * Scans from the saved position, removing expired sessions until the
+         * limit is reached. Returns true if the whole segment was scanned.
+         */
+        boolean scan(long now, int limit, List<String> ids, List<SessionData> expired) {
+            int i = scan;
+            for (int n = 0; n < slots; ) {
+                if (ids.size() >= limit) {
+                    scan = i;
+                    return false;
+                }
+                int off = i * slotSize;
+                if (buf.getInt(off + SLOT_ID_LENGTH) != 0
+                        && SessionData.isExpired(
+                            buf.getLong(off + SLOT_LAST_ACCESSED_TIME),
+                            buf.getInt(off + SLOT_MAX_INACTIVE_INTERVAL), now)) {
+                    ids.add(readId(i));
+                    expired.add(read(i));
+                    remove(i);
+                    // An entry may have shifted into this slot; look at it again.
+                    continue;
+                }
+                i = (i + 1) & mask;
+                n++;
+            }
+            scan = i;
+            return true;
+        }
+
+        private void get(ByteBuffer b, int off, byte[] dst, int pos, int len) {
+            b.position(off);
+            b.get(dst, pos, len);
+        }
+
+        private void put(ByteBuffer b, int off, byte[] src, int pos, int len) {
+            b.position(off);
+            b.put(src, pos, len);
+        }
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package javax.servlet.http;
+
+import java.text.MessageFormat;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.ResourceBundle;
+
+/**
+ * サーブレットに登録されたURLパターンをまとめてコンパイルし、リクエストのパスに一致する{@link HttpServletMapping}を求めます。
+ *
+ * <p>完全一致({@code /path})、パス指定({@code /path/*})、拡張子指定({@code *.ext})、コンテキストルート({@code ""})、デフォルト({@code /})の各パターンは、
+ * サーブレット仕様の優先順位に従って照合されます。
+ * 照合はパスを先頭から一度だけ走査し、各'{@code /}'の位置で接頭辞のハッシュ値を用いて表を引くため、
+ * 所要時間はパスの長さに比例し、登録されたパターンの数には依存しません。
+ *
+ * <p>このクラスのインスタンスは不変でスレッドセーフです。
+ * 登録が変更された場合は新しいインスタンスを構築してください。
+ *
+ * @see javax.servlet.ServletRegistration#getMappings
+ *
+ * @since Servlet 4.0.1
+ */
+public final class ServletMappingMatcher {
+
+    private static final String LSTRING_FILE =
+        "javax.servlet.http.LocalStrings";
+    private static final ResourceBundle lStrings =
+        ResourceBundle.getBundle(LSTRING_FILE);
+
+    private final Table exact;
+    private final Table prefix;
+    private final Table extension;
+    private final ImmutableHttpServletMapping defaultMapping;
+
+    /**
+     * サーブレット名とそのサーブレットのURLパターンのコレクションの対応から、マッチャーを構築します。
+     *
+     * <p>{@link javax.servlet.ServletRegistration#getMappings}が返すコレクションをそのまま渡すことができます。
+     *
+     * @param mappings サーブレット名をキーとし、そのサーブレットのURLパターンのコレクションを値とするマップ
+     *
+     * @throws IllegalArgumentException URLパターンが不正な場合、または同じURLパターンが複数回指定された場合
+     */
+    public ServletMappingMatcher(Map<String, ? extends Collection<String>> mappings) {
+        Map<String, ImmutableHttpServletMapping> exactMappings = new HashMap<>();
+        Map<String, ImmutableHttpServletMapping> prefixMappings = new HashMap<>();
+        Map<String, ImmutableHttpServletMapping> extensionMappings = new HashMap<>();
+        ImmutableHttpServletMapping defaultServlet = null;
+        for (Map.Entry<String, ? extends Collection<String>> e : mappings.entrySet()) {
+            String servletName = e.getKey();
+            for (String pattern : e.getValue()) {
+                ImmutableHttpServletMapping previous;
+                if (pattern.isEmpty()) {
+                    ImmutableHttpServletMapping m = ImmutableHttpServletMapping.of(
+                        servletName, "", MappingMatch.CONTEXT_ROOT);
+                    previous = exactMappings.put("", m);
+                    exactMappings.put("/", m);
+                } else if (pattern.equals("/")) {
+                    previous = defaultServlet;
+                    defaultServlet = ImmutableHttpServletMapping.of(
+                        servletName, "/", MappingMatch.DEFAULT);
+                } else if (pattern.startsWith("*.")) {
+                    String ext = pattern.substring(2);
+                    if (ext.isEmpty() || ext.indexOf('/') >= 0) {
+                        throw invalidPattern(pattern, servletName);
+                    }
+                    previous = extensionMappings.put(ext,
+                        ImmutableHttpServletMapping.of(servletName, pattern, MappingMatch.EXTENSION));
+                } else if (pattern.charAt(0) != '/') {
+                    throw invalidPattern(pattern, servletName);
+                } else if (pattern.endsWith("/*")) {
+                    previous = prefixMappings.put(pattern.substring(0, pattern.length() - 2),
+                        ImmutableHttpServletMapping.of(servletName, pattern, MappingMatch.PATH));
+                } else {
+                    if (pattern.indexOf('*') >= 0) {
+                        throw invalidPattern(pattern, servletName);
+                    }
+                    previous = exactMappings.put(pattern,
+                        ImmutableHttpServletMapping.of(servletName, pattern, MappingMatch.EXACT));
+                }
+                if (previous != null) {
+                    throw new IllegalArgumentException(MessageFormat.format(
+                        lStrings.getString("err.mapping.duplicate_pattern"),
+                        pattern, previous.getServletName(), servletName));
+                }
+            }
+        }
+        this.exact = new Table(exactMappings);
+        this.prefix = new Table(prefixMappings);
+        this.extension = new Table(extensionMappings);
+        this.defaultMapping = defaultServlet;
+    }
+
+    private static IllegalArgumentException invalidPattern(String pattern,
+                                                           String servletName) {
+        return new IllegalArgumentException(MessageFormat.format(
+            lStrings.getString("err.mapping.invalid_pattern"),
+            pattern, servletName));
+    }
+
+    /**
+     * コンテキスト相対のパスに一致するマッピングを返します。
+     *
+     * <p>パスはコンテキストパスを除き、デコードと正規化が済んだもの、つまり{@code servletPath + pathInfo}であり、クエリ文字列を含みません。
+     * 完全一致とコンテキストルート、最長のパス指定、拡張子指定、デフォルトの順に一致するものが選ばれます。
+     * 結果は{@link ImmutableHttpServletMapping}であり、完全一致、コンテキストルート、デフォルトに対しては共有されたインスタンスが返されます。
+     *
+     * @param path コンテキスト相対のパス
+     *
+     * @return 一致した{@link HttpServletMapping}。一致するものがなくデフォルトのサーブレットも登録されていない場合はnull
+     */
+    public HttpServletMapping match(String path) {
+        int length = path.length();
+        int hash = 0;
+        int extensionHash = 0;
+        int dot = -1;
+        ImmutableHttpServletMapping longestPrefix = null;
+        int longestPrefixLength = 0;
+        for (int i = 0; i < length; i++) {
+            char c = path.charAt(i);
+            if (c == '/') {
+                ImmutableHttpServletMapping m = prefix.get(hash, path, 0, i);
+                if (m != null) {
+                    longestPrefix = m;
+                    longestPrefixLength = i;
+                }
+                dot = -1;
+            } else if (c == '.') {
+                dot = i;
+                extensionHash = 0;
+            } else if (dot >= 0) {
+                extensionHash = 31 * extensionHash + c;
+            }
+            hash = 31 * hash + c;
+        }
+
+        ImmutableHttpServletMapping m = exact.get(hash, path, 0, length);
+        if (m != null) {
+            return m;
+        }
+        m = prefix.get(hash, path, 0, length);
+        if (m != null) {
+            longestPrefix = m;
+            longestPrefixLength = length;
+        }
+        if (longestPrefix != null) {
+            String matchValue = (longestPrefixLength + 1 < length) ?
+                path.substring(longestPrefixLength + 1) : "";
+            return longestPrefix.withMatchValue(matchValue);
+        }
+        if (dot >= 0) {
+            m = extension.get(extensionHash, path, dot + 1, length);
+            if (m != null) {
+                int start = (length > 0 && path.charAt(0) == '/') ? 1 : 0;
+                return m.withMatchValue(path.substring(start, Math.max(start, dot)));
+            }
+        }
+        return defaultMapping;
+    }
+
+    /*
+     * Open-addressed table keyed by String.hashCode() of the key so that a
+     * region of the path can be looked up with a hash accumulated while
+     * scanning, without creating a substring.
+     */
+    private static final class Table {
+
+        private final int mask;
+        private final int[] hashes;
+        private final String[] keys;
+        private final ImmutableHttpServletMapping[] values;
+
+        Table(Map<String, ImmutableHttpServletMapping> entries) {
+            int capacity = 2;
+            while (capacity < entries.size() * 2) {
+                capacity <<= 1;
+            }
+            mask = capacity - 1;
+            hashes = new int[capacity];
+            keys = new String[capacity];
+            values = new ImmutableHttpServletMapping[capacity];
+            for (Map.Entry<String, ImmutableHttpServletMapping> e : entries.entrySet()) {
+                String key = e.getKey();
+                int h = key.hashCode();
+                int i = spread(h) & mask;
+                while (keys[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                hashes[i] = h;
+                keys[i] = key;
+                values[i] = e.getValue();
+            }
+        }
+
+        private static int spread(int h) {
+            return h ^ (h >>> 16);
+        }
+
+        ImmutableHttpServletMapping get(int hash, String path, int start, int end) {
+            int length = end - start;
+            for (int i = spread(hash) & mask; keys[i] != null; i = (i + 1) & mask) {
+                if (hashes[i] == hash && keys[i].length() == length
+                        && path.regionMatches(start, keys[i], 0, length)) {
+                    return values[i];
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,281 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package javax.servlet.http;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.NotSerializableException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.text.MessageFormat;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.ResourceBundle;
+
+/**
+ * {@link SessionStore}に保存されるセッションの状態です。
+ *
+ * <p>作成日時、最終アクセス日時、最大非アクティブ間隔と、シリアライズされた属性からなります。
+ * 属性のバイト列の形式は{@link #passivate}と{@link #getAttributes}の間でだけ意味を持ち、ストアはその内容を解釈しません。
+ *
+ * <p>このクラスのインスタンスは不変です。ただし、コンストラクタに渡したバイト列と{@link #getAttributeBytes}が返すバイト列は
+ * 複製されないため、呼び出し側はその内容を変更してはいけません。
+ *
+ * @see SessionStore
+ *
+ * @since Servlet 4.0.1
+ */
+public final class SessionData {
+
+    private static final String LSTRING_FILE =
+        "javax.servlet.http.LocalStrings";
+    private static final ResourceBundle lStrings =
+        ResourceBundle.getBundle(LSTRING_FILE);
+
+    private static final byte[] NO_ATTRIBUTES = new byte[0];
+
+    private final long creationTime;
+    private final long lastAccessedTime;
+    private final int maxInactiveInterval;
+    private final byte[] attributes;
+
+    /**
+     * セッションの状態を生成します。
+     *
+     * @param creationTime 1970年1月1日0時0分0秒(GMT)からの経過時間(ミリ秒)で表したセッションの作成日時
+     * @param lastAccessedTime 1970年1月1日0時0分0秒(GMT)からの経過時間(ミリ秒)で表した最終アクセス日時
+     * @param maxInactiveInterval 秒単位の最大非アクティブ間隔、0以下の場合はタイムアウトしない
+     * @param attributes シリアライズされた属性、<code>null</code>の場合は属性なし
+     */
+    public SessionData(long creationTime, long lastAccessedTime,
+                       int maxInactiveInterval, byte[] attributes) {
+        this.creationTime = creationTime;
+        this.lastAccessedTime = lastAccessedTime;
+        this.maxInactiveInterval = maxInactiveInterval;
+        this.attributes = attributes == null ? NO_ATTRIBUTES : attributes;
+    }
+
+    /**
+     * セッションを非活性化し、その状態を返します。
+     *
+     * <p>{@link HttpSessionActivationListener}を実装した属性の値の{@link HttpSessionActivationListener#sessionWillPassivate}を呼び出してから、
+     * 属性をシリアライズします。
+     * <code>Serializable</code>を実装していない値の属性がある場合は、リスナーを呼び出す前に例外がスローされ、セッションは非活性化されません。
+     *
+     * @param session 非活性化するセッション
+     *
+     * @return セッションの状態
+     *
+     * @throws NotSerializableException <code>Serializable</code>を実装していない値の属性がある場合
+     * @throws IOException 属性のシリアライズに失敗した場合
+     * @throws IllegalStateException セッションが無効化されている場合
+     */
+    public static SessionData passivate(HttpSession session) throws IOException {
+        Map<String, Object> values = session.getAttributes();
+        StringBuilder rejected = null;
+        for (Map.Entry<String, Object> e : values.entrySet()) {
+            if (!(e.getValue() instanceof Serializable)) {
+                if (rejected == null) {
+                    rejected = new StringBuilder();
+                } else {
+                    rejected.append(", ");
+                }
+                rejected.append(e.getKey());
+            }
+        }
+        if (rejected != null) {
+            throw new NotSerializableException(MessageFormat.format(
+                lStrings.getString("err.session.not_serializable"), rejected));
+        }
+        HttpSessionEvent event = null;
+        for (Object value : values.values()) {
+            if (value instanceof HttpSessionActivationListener) {
+                if (event == null) {
+                    event = new HttpSessionEvent(session);
+                }
+                ((HttpSessionActivationListener) value).sessionWillPassivate(event);
+            }
+        }
+        byte[] bytes = NO_ATTRIBUTES;
+        if (!values.isEmpty()) {
+            ByteArrayOutputStream buf = new ByteArrayOutputStream();
+            try (ObjectOutputStream out = new ObjectOutputStream(buf)) {
+                out.writeInt(values.size());
+                for (Map.Entry<String, Object> e : values.entrySet()) {
+                    out.writeUTF(e.getKey());
+                    out.writeObject(e.getValue());
+                }
+            }
+            bytes = buf.toByteArray();
+        }
+        return new SessionData(session.getCreationTime(),
+                               session.getLastAccessedTime(),
+                               session.getMaxInactiveInterval(), bytes);
+    }
+
+    /**
+     * セッションの作成日時を返します。
+     *
+     * @return 1970年1月1日0時0分0秒(GMT)からの経過時間(ミリ秒)で表したセッションの作成日時
+     */
+    public long getCreationTime() {
+        return creationTime;
+    }
+
+    /**
+     * セッションの最終アクセス日時を返します。
+     *
+     * @return 1970年1月1日0時0分0秒(GMT)からの経過時間(ミリ秒)で表した最終アクセス日時
+     */
+    public long getLastAccessedTime() {
+        return lastAccessedTime;
+    }
+
+    /**
+     * セッションの最大非アクティブ間隔を返します。
+     *
+     * @return 秒単位の最大非アクティブ間隔、0以下の場合はタイムアウトしない
+     */
+    public int getMaxInactiveInterval() {
+        return maxInactiveInterval;
+    }
+
+    /**
+     * 指定された日時の時点でセッションが期限切れかどうかを返します。
+     *
+     * @param now 1970年1月1日0時0分0秒(GMT)からの経過時間(ミリ秒)で表した日時
+     *
+     * @return 期限切れの場合は<code>true</code>
+     */
+    public boolean isExpired(long now) {
+        return isExpired(lastAccessedTime, maxInactiveInterval, now);
+    }
+
+    static boolean isExpired(long lastAccessedTime, int maxInactiveInterval, long now) {
+        return maxInactiveInterval > 0
+            && now - lastAccessedTime >= maxInactiveInterval * 1000L;
+    }
+
+    /**
+     * 最終アクセス日時だけを変更した状態を返します。
+     *
+     * @param lastAccessedTime 1970年1月1日0時0分0秒(GMT)からの経過時間(ミリ秒)で表した最終アクセス日時
+     *
+     * @return 最終アクセス日時を変更したセッションの状態
+     */
+    public SessionData withLastAccessedTime(long lastAccessedTime) {
+        return new SessionData(creationTime, lastAccessedTime,
+                               maxInactiveInterval, attributes);
+    }
+
+    /**
+     * シリアライズされた属性を返します。
+     *
+     * @return シリアライズされた属性、属性がない場合は長さ0の配列
+     */
+    public byte[] getAttributeBytes() {
+        return attributes;
+    }
+
+    /**
+     * シリアライズされた属性を復元します。
+     *
+     * <p>このメソッドは{@link HttpSessionActivationListener#sessionDidActivate}を呼び出しません。
+     * コンテナは復元した属性をセッションに格納した後で、その通知を行う必要があります。
+     *
+     * @param loader 属性の値のクラスを読み込むクラスローダー、<code>null</code>の場合は現在のスレッドのコンテキストクラスローダー
+     *
+     * @return 属性の名前と値の変更不可能な<code>Map</code>、属性は保存された順に並びます
+     *
+     * @throws IOException 属性の復元に失敗した場合
+     * @throws ClassNotFoundException 属性の値のクラスが見つからない場合
+     */
+    public Map<String, Object> getAttributes(ClassLoader loader)
+            throws IOException, ClassNotFoundException {
+        if (attributes.length == 0) {
+            return Collections.emptyMap();
+        }
+        ClassLoader cl = loader != null
+            ? loader : Thread.currentThread().getContextClassLoader();
+        try (ObjectInputStream in = new LoaderObjectInputStream(
+                new ByteArrayInputStream(attributes), cl)) {
+            int count = in.readInt();
+            Map<String, Object> values = new LinkedHashMap<>(count * 4 / 3 + 1);
+            for (int i = 0; i < count; i++) {
+                String name = in.readUTF();
+                values.put(name, in.readObject());
+            }
+            return Collections.unmodifiableMap(values);
+        }
+    }
+
+    /*
+     * Resolves attribute classes against the web application's loader
+     * rather than the one that loaded the servlet API.
+     */
+    private static final class LoaderObjectInputStream extends ObjectInputStream {
+
+        private final ClassLoader loader;
+
+        LoaderObjectInputStream(InputStream in, ClassLoader loader) throws IOException {
+            super(in);
+            this.loader = loader;
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc)
+                throws IOException, ClassNotFoundException {
+            if (loader == null) {
+                return super.resolveClass(desc);
+            }
+            try {
+                return Class.forName(desc.getName(), false, loader);
+            } catch (ClassNotFoundException e) {
+                return super.resolveClass(desc);
+            }
+        }
+    }
+}
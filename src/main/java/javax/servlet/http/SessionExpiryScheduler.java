@@ -0,0 +1,395 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package javax.servlet.http;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 階層化されたタイミングホイールを使って、セッションの有効期限を管理します。
+ *
+ * <p>すべてのセッションを定期的に走査して期限切れを探す代わりに、各セッションを期限の時刻に対応するホイールのスロットに登録し、
+ * {@link #advance}で時刻を1秒ずつ進めながら、その時刻のスロットに登録されたセッションだけを調べます。
+ * このため、期限切れの処理にかかる時間は存在するセッションの数ではなく、期限切れになるセッションの数に比例します。
+ * ホイールは64スロットずつの4段からなり、約194日先までの期限を扱えます。それより先の期限は途中で登録し直されます。
+ *
+ * <p>セッションへのアクセスは{@link Timeout#touch}で記録します。記録はロックを使わず、1つのセッションにつき1秒に高々1回だけ行われます。
+ * 記録されたアクセスはホイール上の位置を変更せず、元の期限のスロットに到達したときに新しい期限のスロットへ登録し直されます。
+ * 記録は秒単位に切り上げられるため、セッションが期限より早く期限切れになることはなく、遅れは高々1秒です。
+ *
+ * <p>{@link #advance}は期限切れになったセッションをまとめて、登録されたリスナーの{@link HttpSessionListener#sessionDestroyed}を
+ * 登録と逆の順序で呼び出し、その後でセッションごとに削除の処理を呼び出します。
+ * リスナーが例外をスローしても、残りのリスナーと削除の処理は呼び出されます。
+ * セッションの無効化とコンテナの管理からの削除は、この削除の処理で行います。
+ *
+ * <p>このクラスのメソッドはスレッドセーフです。リスナーと削除の処理はロックを保持しない状態で呼び出されます。
+ *
+ * @see HttpSession#getMaxInactiveInterval
+ * @see SessionStore#expire(long, int, java.util.function.BiConsumer)
+ *
+ * @since Servlet 4.0.1
+ */
+public final class SessionExpiryScheduler {
+
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 4;
+    private static final long MAX_DELTA = (1L << (WHEEL_BITS * LEVELS)) - 1;
+
+    private static final int IDLE = 0;
+    private static final int SCHEDULED = 1;
+    private static final int EXPIRED = 2;
+    private static final int CANCELLED = 3;
+
+    private final HttpSessionListener[] listeners;
+    private final Consumer<? super HttpSession> remover;
+
+    /* Heads of the doubly linked slot lists, guarded by this. */
+    private final Timeout[][] wheel = new Timeout[LEVELS][WHEEL_SIZE];
+
+    /* The next tick (epoch second) to process; all earlier ticks are done. */
+    private long currentTick;
+    private volatile int size;
+
+    /**
+     * 期限切れになったセッションを通知するリスナーと削除の処理を指定して、スケジューラーを生成します。
+     *
+     * @param listeners 期限切れを通知するリスナー、登録された順に並んだもの
+     * @param remover 通知の後でセッションごとに呼び出される削除の処理、<code>null</code>の場合は何もしない
+     */
+    public SessionExpiryScheduler(Collection<? extends HttpSessionListener> listeners,
+                                  Consumer<? super HttpSession> remover) {
+        this.listeners = listeners.toArray(new HttpSessionListener[0]);
+        this.remover = remover;
+        this.currentTick = System.currentTimeMillis() / 1000 + 1;
+    }
+
+    /**
+     * セッションの有効期限の管理を開始します。
+     *
+     * <p>期限は{@link HttpSession#getLastAccessedTime}と{@link HttpSession#getMaxInactiveInterval}から求められます。
+     * 最大非アクティブ間隔が0以下のセッションは、{@link Timeout#update}で間隔が設定されるまで期限切れになりません。
+     *
+     * @param session 管理するセッション
+     *
+     * @return セッションへのアクセスを記録し、管理を取り消すためのハンドル
+     */
+    public Timeout schedule(HttpSession session) {
+        Timeout t = new Timeout(session);
+        t.lastAccessSecond = session.getLastAccessedTime() / 1000;
+        synchronized (this) {
+            t.interval = session.getMaxInactiveInterval();
+            if (t.interval > 0) {
+                insert(t);
+            }
+        }
+        return t;
+    }
+
+    /**
+     * 指定された時刻までホイールを進め、期限切れになったセッションをまとめて通知します。
+     *
+     * <p>コンテナはバックグラウンドのスレッドからこのメソッドを定期的に、たとえば1秒ごとに呼び出します。
+     * 呼び出しの間隔が空いた場合は、その間の時刻がまとめて処理されます。
+     *
+     * @param now 1970年1月1日0時0分0秒(GMT)からの経過時間(ミリ秒)で表した現在の時刻
+     *
+     * @return 期限切れになったセッションの数
+     *
+     * @throws RuntimeException リスナーまたは削除の処理が例外をスローした場合。
+     *         例外は残りのリスナーと削除の処理をすべて呼び出した後でスローされ、2つ目以降の例外は抑制された例外として追加されます
+     */
+    public int advance(long now) {
+        long target = now / 1000;
+        List<Timeout> expired = new ArrayList<>();
+        synchronized (this) {
+            while (currentTick <= target) {
+                long tick = currentTick;
+                int level = 1;
+                while (level < LEVELS
+                        && (tick & ((1L << (WHEEL_BITS * level)) - 1)) == 0) {
+                    level++;
+                }
+                // Cascade the outer wheels whose slot starts at this tick, outermost first.
+                for (int l = level - 1; l > 0; l--) {
+                    for (Timeout t = detach(l, slot(tick, l)); t != null; ) {
+                        Timeout next = t.next;
+                        insert(t);
+                        t = next;
+                    }
+                }
+                for (Timeout t = detach(0, slot(tick, 0)); t != null; ) {
+                    Timeout next = t.next;
+                    if (t.deadline() <= tick) {
+                        t.state = EXPIRED;
+                        t.next = null;
+                        size--;
+                        expired.add(t);
+                    } else {
+                        insert(t);
+                    }
+                    t = next;
+                }
+                currentTick = tick + 1;
+            }
+        }
+        if (!expired.isEmpty()) {
+            fire(expired);
+        }
+        return expired.size();
+    }
+
+    /**
+     * 有効期限を管理しているセッションの数を返します。
+     *
+     * @return 管理しているセッションの数
+     */
+    public int size() {
+        return size;
+    }
+
+    private void fire(List<Timeout> expired) {
+        HttpSessionEvent[] events = new HttpSessionEvent[expired.size()];
+        for (int i = 0; i < events.length; i++) {
+            events[i] = new HttpSessionEvent(expired.get(i).session);
+        }
+        RuntimeException failure = null;
+        for (int l = listeners.length - 1; l >= 0; l--) {
+            HttpSessionListener listener = listeners[l];
+            for (HttpSessionEvent event : events) {
+                try {
+                    listener.sessionDestroyed(event);
+                } catch (RuntimeException e) {
+                    failure = addFailure(failure, e);
+                }
+            }
+        }
+        if (remover != null) {
+            for (Timeout t : expired) {
+                try {
+                    remover.accept(t.session);
+                } catch (RuntimeException e) {
+                    failure = addFailure(failure, e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static RuntimeException addFailure(RuntimeException failure, RuntimeException e) {
+        if (failure == null) {
+            return e;
+        }
+        if (failure != e) {
+            failure.addSuppressed(e);
+        }
+        return failure;
+    }
+
+    private static int slot(long tick, int level) {
+        return (int) (tick >>> (WHEEL_BITS * level)) & WHEEL_MASK;
+    }
+
+    /* Links t into the slot for its deadline relative to currentTick. */
+    private void insert(Timeout t) {
+        long expires = t.deadline();
+        long delta = expires - currentTick;
+        if (delta < 0) {
+            expires = currentTick;
+            delta = 0;
+        } else if (delta > MAX_DELTA) {
+            expires = currentTick + MAX_DELTA;
+            delta = MAX_DELTA;
+        }
+        int level = 0;
+        while (delta >= 1L << (WHEEL_BITS * (level + 1))) {
+            level++;
+        }
+        Timeout[] slots = wheel[level];
+        int index = slot(expires, level);
+        Timeout head = slots[index];
+        t.level = level;
+        t.index = index;
+        t.prev = null;
+        t.next = head;
+        if (head != null) {
+            head.prev = t;
+        }
+        slots[index] = t;
+        if (t.state != SCHEDULED) {
+            t.state = SCHEDULED;
+            size++;
+        }
+    }
+
+    private void unlink(Timeout t) {
+        if (t.prev != null) {
+            t.prev.next = t.next;
+        } else {
+            wheel[t.level][t.index] = t.next;
+        }
+        if (t.next != null) {
+            t.next.prev = t.prev;
+        }
+        t.prev = null;
+        t.next = null;
+        t.state = IDLE;
+        size--;
+    }
+
+    /* Empties a slot and returns its former list, linked through next. */
+    private Timeout detach(int level, int index) {
+        Timeout head = wheel[level][index];
+        wheel[level][index] = null;
+        for (Timeout t = head; t != null; t = t.next) {
+            t.prev = null;
+        }
+        return head;
+    }
+
+    /**
+     * {@link SessionExpiryScheduler}に登録された1つのセッションの有効期限です。
+     *
+     * <p>コンテナはこのハンドルをセッションと一緒に保持し、リクエストのたびに{@link #touch}を呼び出します。
+     *
+     * @since Servlet 4.0.1
+     */
+    public final class Timeout {
+
+        private final HttpSession session;
+        private volatile long lastAccessSecond;
+
+        /* The fields below are guarded by the enclosing scheduler. */
+        private int interval;
+        private volatile int state = IDLE;
+        private int level;
+        private int index;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(HttpSession session) {
+            this.session = session;
+        }
+
+        /* The first tick at which the session is expired. */
+        private long deadline() {
+            return lastAccessSecond + 1 + interval;
+        }
+
+        /**
+         * このハンドルのセッションを返します。
+         *
+         * @return セッション
+         */
+        public HttpSession getSession() {
+            return session;
+        }
+
+        /**
+         * セッションへのアクセスを記録します。
+         *
+         * <p>同じ秒の間の2回目以降の呼び出しは何も記録しません。このメソッドはロックを取得しません。
+         *
+         * @param now 1970年1月1日0時0分0秒(GMT)からの経過時間(ミリ秒)で表したアクセスの時刻
+         *
+         * @return アクセスを記録した場合は<code>true</code>、同じ秒のアクセスが記録済みの場合、
+         * またはセッションが期限切れか管理が取り消されている場合は<code>false</code>
+         */
+        public boolean touch(long now) {
+            long second = now / 1000;
+            if (second <= lastAccessSecond) {
+                return false;
+            }
+            int s = state;
+            if (s == EXPIRED || s == CANCELLED) {
+                return false;
+            }
+            lastAccessSecond = second;
+            return true;
+        }
+
+        /**
+         * {@link HttpSession#setMaxInactiveInterval}で変更された最大非アクティブ間隔を反映します。
+         *
+         * @return 期限を更新した場合は<code>true</code>、セッションが期限切れか管理が取り消されている場合は<code>false</code>
+         */
+        public boolean update() {
+            synchronized (SessionExpiryScheduler.this) {
+                if (state == EXPIRED || state == CANCELLED) {
+                    return false;
+                }
+                if (state == SCHEDULED) {
+                    unlink(this);
+                }
+                interval = session.getMaxInactiveInterval();
+                if (interval > 0) {
+                    insert(this);
+                }
+                return true;
+            }
+        }
+
+        /**
+         * セッションの有効期限の管理を取り消します。
+         *
+         * <p>セッションが{@link HttpSession#invalidate}などで期限切れより前に破棄された場合に呼び出します。
+         *
+         * @return 管理を取り消した場合は<code>true</code>、すでに期限切れか取り消されている場合は<code>false</code>
+         */
+        public boolean cancel() {
+            synchronized (SessionExpiryScheduler.this) {
+                if (state == EXPIRED || state == CANCELLED) {
+                    return false;
+                }
+                if (state == SCHEDULED) {
+                    unlink(this);
+                }
+                state = CANCELLED;
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package javax.servlet.http;
+
+import java.io.IOException;
+import java.util.function.BiConsumer;
+
+/**
+ * サーブレットコンテナがセッションの状態を保存するためのストアのSPIです。
+ *
+ * <p>ストアはセッションIDをキーとして、{@link SessionData}の形にシリアライズされたセッションの状態を保持します。
+ * コンテナはアクセスされていないセッションを{@link #save}でストアに退避してメモリ上から取り除き、
+ * 次にアクセスされたときに{@link #load}で復元します。
+ * 退避と復元の際に{@link HttpSessionActivationListener}へ通知するのはコンテナの責任です。
+ *
+ * <p>有効期限はストアに保存された最終アクセス日時と最大非アクティブ間隔から判定されます。
+ * コンテナは{@link #touch}で最終アクセス日時だけを更新し、{@link #expire(long, int, BiConsumer)}で期限切れのセッションをまとめて取り除きます。
+ *
+ * <p>このインターフェースの実装はスレッドセーフでなければなりません。
+ *
+ * @see MappedSessionStore
+ * @see SessionData
+ *
+ * @since Servlet 4.0.1
+ */
+public interface SessionStore extends AutoCloseable {
+
+    /**
+     * 指定されたIDのセッションの状態を読み込みます。
+     *
+     * <p>セッションはストアから取り除かれません。
+     *
+     * @param id セッションID
+     *
+     * @return セッションの状態、指定されたIDのセッションが保存されていない場合は<code>null</code>
+     *
+     * @throws IOException ストアの読み込みに失敗した場合
+     */
+    public SessionData load(String id) throws IOException;
+
+    /**
+     * 指定されたIDのセッションの状態を保存します。
+     *
+     * <p>同じIDのセッションがすでに保存されている場合は置き換えられます。
+     *
+     * @param id セッションID
+     * @param data セッションの状態
+     *
+     * @throws IOException ストアの容量が足りない場合、または書き込みに失敗した場合
+     */
+    public void save(String id, SessionData data) throws IOException;
+
+    /**
+     * 保存されているセッションの状態を書き換えずに、最終アクセス日時だけを更新します。
+     *
+     * @param id セッションID
+     * @param lastAccessedTime 1970年1月1日0時0分0秒(GMT)からの経過時間(ミリ秒)で表した最終アクセス日時
+     *
+     * @return セッションが保存されていた場合は<code>true</code>
+     *
+     * @throws IOException ストアの書き込みに失敗した場合
+     */
+    public boolean touch(String id, long lastAccessedTime) throws IOException;
+
+    /**
+     * 指定されたIDのセッションをストアから取り除きます。
+     *
+     * <p>セッションが無効化された場合や、メモリ上に復元されてストアの状態が不要になった場合に呼び出されます。
+     *
+     * @param id セッションID
+     *
+     * @return セッションが保存されていた場合は<code>true</code>
+     *
+     * @throws IOException ストアの書き込みに失敗した場合
+     */
+    public boolean expire(String id) throws IOException;
+
+    /**
+     * 指定された日時の時点で期限切れになっているセッションを、最大<code>limit</code>件までストアから取り除きます。
+     *
+     * <p>最終アクセス日時に最大非アクティブ間隔を加えた日時が<code>now</code>以前のセッションが期限切れです。
+     * 最大非アクティブ間隔が0以下のセッションは期限切れになりません。
+     * 取り除かれたセッションのIDと状態は<code>action</code>に渡されるので、コンテナはそれを使って
+     * {@link HttpSessionListener#sessionDestroyed}などの通知を行うことができます。
+     *
+     * <p>1回の呼び出しで期限切れのセッションがすべて取り除かれるとは限りません。
+     * コンテナは戻り値が0になるまで、あるいは定期的に、このメソッドを繰り返し呼び出します。
+     *
+     * @param now 1970年1月1日0時0分0秒(GMT)からの経過時間(ミリ秒)で表した判定に使う日時
+     * @param limit 1回の呼び出しで取り除くセッションの最大数
+     * @param action 取り除かれたセッションごとに呼び出される処理
+     *
+     * @return 取り除いたセッションの数
+     *
+     * @throws IOException ストアの読み書きに失敗した場合
+     */
+    public int expire(long now, int limit,
+                      BiConsumer<? super String, ? super SessionData> action) throws IOException;
+
+    /**
+     * ストアに保存されているセッションの数を返します。
+     *
+     * @return 保存されているセッションの数
+     */
+    public int size();
+
+    /**
+     * ストアを閉じ、使用している資源を解放します。
+     *
+     * <p>閉じたストアの操作は<code>IOException</code>をスローします。
+     *
+     * @throws IOException 資源の解放に失敗した場合
+     */
+    @Override
+    public void close() throws IOException;
+
+}
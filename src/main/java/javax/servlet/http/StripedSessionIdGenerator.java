@@ -0,0 +1,278 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package javax.servlet.http;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.text.MessageFormat;
+import java.util.ResourceBundle;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * スレッドごとに分割された乱数生成器と、事前に生成したIDのバッチを使う{@link SessionIdGenerator}の実装です。
+ *
+ * <p>IDは<code>SecureRandom</code>の出力をbase64url(<a href="http://www.ietf.org/rfc/rfc4648.txt">RFC 4648</a>)でパディングなしに符号化した文字列です。
+ *
+ * <p>ジェネレーターは複数のストライプに分かれ、各スレッドはスレッドIDで選ばれるストライプを使用します。
+ * 各ストライプは自身の<code>SecureRandom</code>を持ち、1回の呼び出しで取得した乱数をまとめて1つの<code>char</code>配列に符号化したIDのバッチを保持します。
+ * IDの払い出しはバッチの位置を不可分に進めるだけでロックを取得しないため、ログインが集中しても1つの<code>SecureRandom</code>の上で待ち合わせることはありません。
+ * バッチを使い切る前に、次のバッチがバックグラウンドで生成されます。
+ * 次のバッチがまだ用意されていない場合は、呼び出したスレッドがその場で生成します。
+ *
+ * <p>バックグラウンドのスレッドをジェネレーターが作成した場合、{@link #close}でそのスレッドを終了します。
+ * 閉じた後もIDは生成できますが、バッチは呼び出したスレッドで生成されます。
+ *
+ * @since Servlet 4.0.1
+ */
+public final class StripedSessionIdGenerator implements SessionIdGenerator, AutoCloseable {
+
+    private static final String LSTRING_FILE =
+        "javax.servlet.http.LocalStrings";
+    private static final ResourceBundle lStrings =
+        ResourceBundle.getBundle(LSTRING_FILE);
+
+    private static final char[] BASE64URL =
+        "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".toCharArray();
+
+    private static final int DEFAULT_ID_BYTES = 18;
+    private static final int DEFAULT_BATCH_SIZE = 64;
+
+    /* Prefer an algorithm with per-instance state; NativePRNG serializes every instance on one lock. */
+    private static final String ALGORITHM = "SHA1PRNG";
+
+    private final int idBytes;
+    private final int idLength;
+    private final int batchSize;
+    private final Executor executor;
+    private final ExecutorService ownedExecutor;
+    private final Stripe[] stripes;
+    private final int stripeShift;
+
+    /**
+     * 18バイト(144ビット)の乱数から24文字のIDを生成するジェネレーターを、プロセッサの数に応じたストライプで生成します。
+     *
+     * <p>バッチはこのジェネレーターが作成するデーモンスレッドで生成されます。
+     */
+    public StripedSessionIdGenerator() {
+        this(DEFAULT_ID_BYTES, Runtime.getRuntime().availableProcessors(), DEFAULT_BATCH_SIZE,
+             Executors.newSingleThreadExecutor(new ThreadFactory() {
+                 @Override
+                 public Thread newThread(Runnable r) {
+                     Thread t = new Thread(r, "SessionIdGenerator");
+                     t.setDaemon(true);
+                     return t;
+                 }
+             }), true);
+    }
+
+    /**
+     * 設定を指定してジェネレーターを生成します。
+     *
+     * @param idBytes 1つのIDに使う乱数のバイト数、8以上
+     * @param stripes ストライプの数、2の累乗に切り上げられます
+     * @param batchSize 1つのバッチに含まれるIDの数
+     * @param executor バッチを生成するエグゼキューター、<code>null</code>の場合はIDを払い出すスレッドでバッチを生成する
+     *
+     * @throws IllegalArgumentException 引数が範囲外の場合
+     */
+    public StripedSessionIdGenerator(int idBytes, int stripes, int batchSize,
+                                     Executor executor) {
+        this(idBytes, stripes, batchSize, executor, false);
+    }
+
+    private StripedSessionIdGenerator(int idBytes, int stripes, int batchSize,
+                                      Executor executor, boolean owned) {
+        if (idBytes < 8 || idBytes > 1024 || stripes <= 0 || stripes > (1 << 16)
+                || batchSize <= 0 || (long) idBytes * batchSize > (1 << 24)) {
+            if (owned) {
+                ((ExecutorService) executor).shutdown();
+            }
+            throw new IllegalArgumentException(MessageFormat.format(
+                lStrings.getString("err.idgen.invalid"),
+                idBytes, stripes, batchSize));
+        }
+        this.idBytes = idBytes;
+        this.idLength = (idBytes * 4 + 2) / 3;
+        this.batchSize = batchSize;
+        this.executor = executor;
+        this.ownedExecutor = owned ? (ExecutorService) executor : null;
+        int n = Integer.highestOneBit(stripes * 2 - 1);
+        this.stripeShift = 32 - Integer.numberOfTrailingZeros(n);
+        this.stripes = new Stripe[n];
+        for (int i = 0; i < n; i++) {
+            this.stripes[i] = new Stripe(newRandom());
+        }
+    }
+
+    private static SecureRandom newRandom() {
+        try {
+            return SecureRandom.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            return new SecureRandom();
+        }
+    }
+
+    @Override
+    public String generateSessionId() {
+        Stripe stripe = stripes[stripeShift == 32 ? 0
+            : ((int) Thread.currentThread().getId() * 0x9E3779B9) >>> stripeShift];
+        for (;;) {
+            Batch batch = stripe.current.get();
+            int i = batch.next.getAndIncrement();
+            if (i < batchSize) {
+                if (i == batchSize / 2) {
+                    stripe.requestRefill();
+                }
+                return new String(batch.chars, i * idLength, idLength);
+            }
+            Batch fresh = stripe.spare.getAndSet(null);
+            if (fresh == null) {
+                fresh = stripe.fill();
+            }
+            if (!stripe.current.compareAndSet(batch, fresh)) {
+                stripe.spare.compareAndSet(null, fresh);
+            }
+            stripe.requestRefill();
+        }
+    }
+
+    /**
+     * このジェネレーターが作成したバックグラウンドのスレッドを終了します。
+     *
+     * <p>エグゼキューターを指定して生成した場合は何もしません。
+     */
+    @Override
+    public void close() {
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+        }
+    }
+
+    /*
+     * Encodes random bytes as unpadded base64url, writing each id's
+     * characters straight into the batch's char array.
+     */
+    private void encode(byte[] src, char[] dst) {
+        int d = 0;
+        for (int id = 0; id < batchSize; id++) {
+            int s = id * idBytes;
+            int end = s + idBytes;
+            for (; s + 3 <= end; s += 3) {
+                int v = (src[s] & 0xff) << 16 | (src[s + 1] & 0xff) << 8 | (src[s + 2] & 0xff);
+                dst[d++] = BASE64URL[v >>> 18];
+                dst[d++] = BASE64URL[(v >>> 12) & 0x3f];
+                dst[d++] = BASE64URL[(v >>> 6) & 0x3f];
+                dst[d++] = BASE64URL[v & 0x3f];
+            }
+            int rest = end - s;
+            if (rest > 0) {
+                int v = (src[s] & 0xff) << 16 | (rest == 2 ? (src[s + 1] & 0xff) << 8 : 0);
+                dst[d++] = BASE64URL[v >>> 18];
+                dst[d++] = BASE64URL[(v >>> 12) & 0x3f];
+                if (rest == 2) {
+                    dst[d++] = BASE64URL[(v >>> 6) & 0x3f];
+                }
+            }
+        }
+    }
+
+    /* A block of encoded ids handed out in order; immutable apart from next. */
+    private static final class Batch {
+
+        final char[] chars;
+        final AtomicInteger next;
+
+        Batch(char[] chars, int next) {
+            this.chars = chars;
+            this.next = new AtomicInteger(next);
+        }
+    }
+
+    private final class Stripe {
+
+        final SecureRandom random;
+        final AtomicReference<Batch> current;
+        final AtomicReference<Batch> spare = new AtomicReference<>();
+        final AtomicBoolean refilling = new AtomicBoolean();
+
+        Stripe(SecureRandom random) {
+            this.random = random;
+            // An exhausted batch, so the first call fills the stripe on demand.
+            this.current = new AtomicReference<>(new Batch(new char[0], batchSize));
+        }
+
+        Batch fill() {
+            byte[] bytes = new byte[idBytes * batchSize];
+            random.nextBytes(bytes);
+            char[] chars = new char[idLength * batchSize];
+            encode(bytes, chars);
+            return new Batch(chars, 0);
+        }
+
+        void requestRefill() {
+            if (executor == null || spare.get() != null
+                    || !refilling.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            spare.compareAndSet(null, fill());
+                        } finally {
+                            refilling.set(false);
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                refilling.set(false);
+            }
+        }
+    }
+}
@@ -0,0 +1,378 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package javax.servlet.http;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.text.MessageFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ResourceBundle;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+
+/**
+ * <i>application/x-www-form-urlencoded</i>形式のフォームのデータを少しずつ受け取りながらデコードします。
+ *
+ * <p>非推奨の{@link HttpUtils#parsePostData}はリクエストボディ全体を一つの配列に読み込み、文字列にコピーしてから解析しますが、
+ * このクラスは{@link ServletInputStream}から固定サイズの単位で読み込み、パラメータの区切りに達するたびにパラメータを生成します。
+ * 保持するのは読み込み用のバッファと、複数の読み込みにまたがった一つのパラメータの分だけです。
+ *
+ * <p>パラメータの数とデータ全体のサイズには上限を設定することができます。
+ * 上限を超えた場合は<code>IllegalStateException</code>がスローされます。
+ *
+ * <p>{@link #readFrom(ServletInputStream)}はブロッキングしながらストリームの終端まで読み込みます。
+ * {@link #readFrom(ServletInputStream, ReadListener)}は{@link ReadListener}を使用してノンブロッキングで読み込むため、
+ * フォームの解析のためにリクエストのスレッドがブロックされることはありません。
+ *
+ * <p>このクラスのインスタンスは一つのリクエストボディのためだけに使用し、スレッドセーフではありません。
+ *
+ * @see UrlEncodedParser
+ *
+ * @since Servlet 4.0.1
+ */
+public class UrlEncodedFormDecoder {
+
+    private static final String LSTRING_FILE =
+        "javax.servlet.http.LocalStrings";
+    private static final ResourceBundle lStrings =
+        ResourceBundle.getBundle(LSTRING_FILE);
+
+    private static final int CHUNK_SIZE = 4096;
+    private static final int INITIAL_PAIR_SIZE = 256;
+
+    private final UrlEncodedParser.Visitor visitor;
+    private final UrlEncodedParser.RangeParameter parameter;
+    private final Map<String, List<String>> parameterMap;
+    private final int maxParameterCount;
+    private final long maxSize;
+
+    // raw bytes of a pair that spans more than one chunk
+    private byte[] pair;
+    private int pairLength;
+
+    private byte[] chunk;
+    private long size;
+    private int parameterCount;
+    private boolean stopped;
+    private boolean finished;
+
+
+    /**
+     * デコードしたパラメータを<code>Map</code>に格納する<code>UrlEncodedFormDecoder</code>を作成します。
+     * 結果は{@link #getParameterMap}で取得できます。
+     *
+     * @param charset データをデコードするための文字セット
+     *
+     * @param maxParameterCount パラメータの最大数。負の値の場合は無制限
+     *
+     * @param maxSize データ全体の最大バイト数。負の値の場合は無制限
+     *
+     * @exception IllegalArgumentException <code>charset</code>がnullの場合
+     */
+    public UrlEncodedFormDecoder(Charset charset, int maxParameterCount,
+            long maxSize) {
+        this(charset, maxParameterCount, maxSize,
+             new LinkedHashMap<String, List<String>>());
+    }
+
+
+    /**
+     * デコードしたパラメータを指定したビジターに渡す<code>UrlEncodedFormDecoder</code>を作成します。
+     * パラメータの名前と値はビジターから要求されたときに初めてデコードされます。
+     *
+     * @param charset データをデコードするための文字セット
+     *
+     * @param maxParameterCount パラメータの最大数。負の値の場合は無制限
+     *
+     * @param maxSize データ全体の最大バイト数。負の値の場合は無制限
+     *
+     * @param visitor パラメータを受け取る{@link UrlEncodedParser.Visitor}
+     *
+     * @exception IllegalArgumentException <code>charset</code>もしくは<code>visitor</code>がnullの場合
+     */
+    public UrlEncodedFormDecoder(Charset charset, int maxParameterCount,
+            long maxSize, UrlEncodedParser.Visitor visitor) {
+        if (charset == null || visitor == null) {
+            throw new IllegalArgumentException();
+        }
+        this.visitor = visitor;
+        this.parameter = new UrlEncodedParser.RangeParameter(charset);
+        this.parameterMap = null;
+        this.maxParameterCount = maxParameterCount;
+        this.maxSize = maxSize;
+    }
+
+
+    private UrlEncodedFormDecoder(Charset charset, int maxParameterCount,
+            long maxSize, Map<String, List<String>> parameterMap) {
+        if (charset == null) {
+            throw new IllegalArgumentException();
+        }
+        this.visitor = new UrlEncodedParser.Collector(parameterMap);
+        this.parameter = new UrlEncodedParser.RangeParameter(charset);
+        this.parameterMap = parameterMap;
+        this.maxParameterCount = maxParameterCount;
+        this.maxSize = maxSize;
+    }
+
+
+    /**
+     * フォームのデータの一部をデコードします。
+     * 完結したパラメータはこのメソッドの中でビジターに渡され、最後のパラメータの途中までのデータは次の呼び出しのために保持されます。
+     *
+     * <p>ビジターが<code>false</code>を返した後は、残りのデータは無視されます。
+     *
+     * @param b データを含む配列
+     *
+     * @param off データの開始位置
+     *
+     * @param len データのバイト数
+     *
+     * @exception IndexOutOfBoundsException <code>off</code>もしくは<code>len</code>が配列の範囲外の場合
+     *
+     * @exception IllegalStateException パラメータの数もしくはデータのサイズが上限を超えた場合、または{@link #finish}がすでに呼び出されていた場合
+     */
+    public void update(byte[] b, int off, int len) {
+        if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (finished) {
+            throw new IllegalStateException(
+                lStrings.getString("err.form.ise.finished"));
+        }
+        if (stopped) {
+            return;
+        }
+        size += len;
+        if (maxSize >= 0 && size > maxSize) {
+            throw new IllegalStateException(MessageFormat.format(
+                lStrings.getString("err.form.too_large"), String.valueOf(maxSize)));
+        }
+
+        int limit = off + len;
+        int start = off;
+        while (start < limit && !stopped) {
+            int end = start;
+            while (end < limit && b[end] != '&') {
+                end++;
+            }
+            if (end == limit) {
+                append(b, start, end);
+                return;
+            }
+            if (pairLength == 0) {
+                // the whole pair is in this chunk, no need to copy it
+                emit(b, start, end);
+            } else {
+                append(b, start, end);
+                emit(pair, 0, pairLength);
+                pairLength = 0;
+            }
+            start = end + 1;
+        }
+    }
+
+
+    /**
+     * データの終端に達したことを通知し、保持している最後のパラメータをビジターに渡します。
+     * 二回目以降の呼び出しは何もしません。
+     *
+     * @exception IllegalStateException パラメータの数が上限を超えた場合
+     */
+    public void finish() {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        if (!stopped && pairLength > 0) {
+            emit(pair, 0, pairLength);
+        }
+        pairLength = 0;
+    }
+
+
+    /**
+     * 指定したストリームの終端まで固定サイズの単位で読み込んでデコードし、{@link #finish}を呼び出します。
+     * データが読み込めるようになるまでこのメソッドはブロックします。
+     *
+     * @param in 読み込む<code>ServletInputStream</code>
+     *
+     * @exception IOException I/O例外が発生した
+     *
+     * @exception IllegalStateException パラメータの数もしくはデータのサイズが上限を超えた場合
+     */
+    public void readFrom(ServletInputStream in) throws IOException {
+        byte[] buf = getChunk();
+        int n;
+        while (!stopped && (n = in.read(buf, 0, buf.length)) != -1) {
+            update(buf, 0, n);
+        }
+        finish();
+    }
+
+
+    /**
+     * 指定したストリームに{@link ReadListener}を登録し、ノンブロッキングで読み込みながらデコードします。
+     * このメソッドはすぐに戻ります。
+     *
+     * <p>すべてのデータをデコードすると{@link #finish}を呼び出してから<code>listener</code>の{@link ReadListener#onAllDataRead}を呼び出します。
+     * 読み込みに失敗した場合やパラメータの数もしくはデータのサイズが上限を超えた場合は<code>listener</code>の{@link ReadListener#onError}を呼び出します。
+     * <code>listener</code>の{@link ReadListener#onDataAvailable}は呼び出されません。
+     *
+     * <p>{@link ServletInputStream#setReadListener}と同様に、関連するリクエストで非同期処理が開始されている必要があります。
+     *
+     * @param in 読み込む<code>ServletInputStream</code>
+     *
+     * @param listener デコードの完了もしくはエラーの通知を受ける{@link ReadListener}
+     *
+     * @exception IllegalStateException 関連するリクエストで非同期処理が開始されていない場合、もしくはすでにReadListenerが設定されている場合
+     */
+    public void readFrom(final ServletInputStream in,
+            final ReadListener listener) {
+        final byte[] buf = getChunk();
+        in.setReadListener(new ReadListener() {
+
+            // set once an error has been reported to the listener
+            private boolean failed;
+
+            @Override
+            public void onDataAvailable() throws IOException {
+                if (failed) {
+                    return;
+                }
+                try {
+                    while (in.isReady() && !in.isFinished()) {
+                        int n = in.read(buf, 0, buf.length);
+                        if (n == -1) {
+                            break;
+                        }
+                        update(buf, 0, n);
+                    }
+                } catch (IllegalStateException e) {
+                    onError(e);
+                }
+            }
+
+            @Override
+            public void onAllDataRead() throws IOException {
+                if (failed) {
+                    return;
+                }
+                try {
+                    finish();
+                } catch (IllegalStateException e) {
+                    onError(e);
+                    return;
+                }
+                listener.onAllDataRead();
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                if (!failed) {
+                    failed = true;
+                    listener.onError(t);
+                }
+            }
+        });
+    }
+
+
+    /**
+     * デコードされたパラメータの<code>Map</code>を返します。
+     * <code>Map</code>のキーは入力に現れた順序で並び、値のリストには同じ名前を持つすべての値が順に含まれます。
+     *
+     * @return 同期化されない、変更可能な<code>Map</code>。ビジターを指定して作成した場合は<code>null</code>
+     */
+    public Map<String, List<String>> getParameterMap() {
+        return parameterMap;
+    }
+
+
+    private byte[] getChunk() {
+        if (chunk == null) {
+            chunk = new byte[CHUNK_SIZE];
+        }
+        return chunk;
+    }
+
+
+    /*
+     * Keeps b[start, end) as part of a pair continued in a later chunk.
+     */
+    private void append(byte[] b, int start, int end) {
+        int len = end - start;
+        if (len == 0) {
+            return;
+        }
+        if (pair == null) {
+            pair = new byte[Math.max(INITIAL_PAIR_SIZE, len)];
+        } else if (pairLength + len > pair.length) {
+            byte[] newPair = new byte[Math.max(pair.length * 2, pairLength + len)];
+            System.arraycopy(pair, 0, newPair, 0, pairLength);
+            pair = newPair;
+        }
+        System.arraycopy(b, start, pair, pairLength, len);
+        pairLength += len;
+    }
+
+
+    private void emit(byte[] b, int start, int end) {
+        if (end == start) {
+            return;
+        }
+        if (maxParameterCount >= 0 && ++parameterCount > maxParameterCount) {
+            throw new IllegalStateException(MessageFormat.format(
+                lStrings.getString("err.form.too_many_parameters"),
+                String.valueOf(maxParameterCount)));
+        }
+        int eq = start;
+        while (eq < end && b[eq] != '=') {
+            eq++;
+        }
+        parameter.set(b, start, (eq < end) ? eq : -1, end);
+        if (!visitor.visit(parameter)) {
+            stopped = true;
+        }
+    }
+}
@@ -0,0 +1,472 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package javax.servlet.http;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <i>application/x-www-form-urlencoded</i>形式のクエリ文字列やフォームのデータを解析します。
+ *
+ * <p>非推奨の{@link HttpUtils#parseQueryString}と異なり、入力を一度走査するだけで解析し、
+ * <i>%xx</i>の16進表記で送られたバイト列を指定した文字セットでデコードするため、UTF-8などのマルチバイト文字も正しく扱うことができます。
+ * +文字はスペースに変換されます。
+ * 後ろに2桁の16進数が続かない%文字はそのまま残され、=文字を含まないペアは値が空文字列のパラメータとして扱われます。
+ *
+ * <p>解析の結果は同期化されない<code>Map</code>として受け取るか、{@link Visitor}を使用してパラメータごとに受け取ることができます。
+ * {@link Visitor}を使用した場合、パラメータの名前や値は{@link Parameter}から要求されたときに初めてデコードされるため、
+ * アプリケーションが読まないパラメータのためにオブジェクトが生成されることはありません。
+ *
+ * @see HttpUtils#parseQueryString
+ *
+ * @since Servlet 4.0.1
+ */
+public final class UrlEncodedParser {
+
+    private UrlEncodedParser() { }
+
+
+    /**
+     * 解析されたパラメータを一つずつ受け取るビジターです。
+     *
+     * @since Servlet 4.0.1
+     */
+    @FunctionalInterface
+    public interface Visitor {
+
+        /**
+         * パラメータごとに入力に現れた順序で呼び出されます。
+         *
+         * @param parameter 解析されたパラメータ。このメソッドから戻った後は使用できません
+         *
+         * @return 解析を続ける場合は<code>true</code>、残りのパラメータを読まずに終了する場合は<code>false</code>
+         */
+        public boolean visit(Parameter parameter);
+    }
+
+
+    /**
+     * {@link Visitor}に渡されるパラメータです。
+     *
+     * <p>名前と値はメソッドが呼び出されたときにデコードされます。
+     * 同じオブジェクトが次のパラメータのために再利用されるため、{@link Visitor#visit}から戻った後は使用できません。
+     *
+     * @since Servlet 4.0.1
+     */
+    public interface Parameter {
+
+        /**
+         * デコードされたパラメータの名前を返します。
+         *
+         * @return パラメータの名前
+         */
+        public String getName();
+
+        /**
+         * デコードされたパラメータの値を返します。
+         *
+         * @return パラメータの値、=文字を含まないペアの場合は空文字列
+         */
+        public String getValue();
+
+        /**
+         * デコードされたパラメータの名前が指定した名前と等しいかどうかを返します。
+         * 名前がエンコードされていない場合は<code>String</code>を生成せずに比較します。
+         *
+         * @param name 比較する名前
+         *
+         * @return 名前が等しい場合は<code>true</code>
+         */
+        public boolean nameEquals(String name);
+    }
+
+
+    /**
+     * クエリ文字列を解析し、パラメータの名前から値のリストへの<code>Map</code>を返します。
+     * <code>Map</code>のキーは入力に現れた順序で並び、値のリストには同じ名前を持つすべての値が順に含まれます。
+     *
+     * @param s 解析するクエリ文字列
+     *
+     * @param charset <i>%xx</i>の16進表記をデコードするための文字セット
+     *
+     * @return 同期化されない、変更可能な<code>Map</code>
+     *
+     * @exception IllegalArgumentException <code>s</code>もしくは<code>charset</code>がnullの場合
+     */
+    public static Map<String, List<String>> parse(CharSequence s,
+            Charset charset) {
+        Map<String, List<String>> map = new LinkedHashMap<>();
+        parse(s, charset, new Collector(map));
+        return map;
+    }
+
+
+    /**
+     * バイト列として与えられたクエリ文字列やフォームのデータを解析し、パラメータの名前から値のリストへの<code>Map</code>を返します。
+     * <code>Map</code>のキーは入力に現れた順序で並び、値のリストには同じ名前を持つすべての値が順に含まれます。
+     *
+     * @param b 解析するデータを含む配列
+     *
+     * @param off データの開始位置
+     *
+     * @param len データのバイト数
+     *
+     * @param charset データをデコードするための文字セット
+     *
+     * @return 同期化されない、変更可能な<code>Map</code>
+     *
+     * @exception IllegalArgumentException <code>b</code>もしくは<code>charset</code>がnullの場合
+     *
+     * @exception IndexOutOfBoundsException <code>off</code>もしくは<code>len</code>が配列の範囲外の場合
+     */
+    public static Map<String, List<String>> parse(byte[] b, int off, int len,
+            Charset charset) {
+        Map<String, List<String>> map = new LinkedHashMap<>();
+        parse(b, off, len, charset, new Collector(map));
+        return map;
+    }
+
+
+    /**
+     * クエリ文字列を解析し、パラメータごとに指定したビジターを呼び出します。
+     *
+     * @param s 解析するクエリ文字列
+     *
+     * @param charset <i>%xx</i>の16進表記をデコードするための文字セット
+     *
+     * @param visitor パラメータを受け取る{@link Visitor}
+     *
+     * @exception IllegalArgumentException いずれかの引数がnullの場合
+     */
+    public static void parse(CharSequence s, Charset charset,
+            Visitor visitor) {
+        if (s == null || charset == null || visitor == null) {
+            throw new IllegalArgumentException();
+        }
+        RangeParameter parameter = new RangeParameter(charset);
+        int len = s.length();
+        int start = 0;
+        while (start < len) {
+            int eq = -1;
+            int end = start;
+            for (; end < len; end++) {
+                char c = s.charAt(end);
+                if (c == '&') {
+                    break;
+                } else if (c == '=' && eq < 0) {
+                    eq = end;
+                }
+            }
+            if (end > start) {
+                parameter.set(s, start, eq, end);
+                if (!visitor.visit(parameter)) {
+                    return;
+                }
+            }
+            start = end + 1;
+        }
+    }
+
+
+    /**
+     * バイト列として与えられたクエリ文字列やフォームのデータを解析し、パラメータごとに指定したビジターを呼び出します。
+     *
+     * @param b 解析するデータを含む配列
+     *
+     * @param off データの開始位置
+     *
+     * @param len データのバイト数
+     *
+     * @param charset データをデコードするための文字セット
+     *
+     * @param visitor パラメータを受け取る{@link Visitor}
+     *
+     * @exception IllegalArgumentException <code>b</code>、<code>charset</code>もしくは<code>visitor</code>がnullの場合
+     *
+     * @exception IndexOutOfBoundsException <code>off</code>もしくは<code>len</code>が配列の範囲外の場合
+     */
+    public static void parse(byte[] b, int off, int len, Charset charset,
+            Visitor visitor) {
+        if (b == null || charset == null || visitor == null) {
+            throw new IllegalArgumentException();
+        }
+        if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+        RangeParameter parameter = new RangeParameter(charset);
+        int limit = off + len;
+        int start = off;
+        while (start < limit) {
+            int eq = -1;
+            int end = start;
+            for (; end < limit; end++) {
+                byte c = b[end];
+                if (c == '&') {
+                    break;
+                } else if (c == '=' && eq < 0) {
+                    eq = end;
+                }
+            }
+            if (end > start) {
+                parameter.set(b, start, eq, end);
+                if (!visitor.visit(parameter)) {
+                    return;
+                }
+            }
+            start = end + 1;
+        }
+    }
+
+
+    /*
+     * Value of a hexadecimal digit, or -1.
+     */
+    private static int hex(int c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        } else if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        } else if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+
+
+    /*
+     * Decodes b[start, end). Percent escapes and '+' are resolved into a
+     * scratch array that is then decoded with the charset in one go.
+     */
+    static String decode(byte[] b, int start, int end, Charset charset) {
+        int i = start;
+        while (i < end && b[i] != '%' && b[i] != '+') {
+            i++;
+        }
+        if (i == end) {
+            return new String(b, start, end - start, charset);
+        }
+        byte[] buf = new byte[end - start];
+        int n = i - start;
+        System.arraycopy(b, start, buf, 0, n);
+        for (; i < end; i++) {
+            byte c = b[i];
+            if (c == '+') {
+                buf[n++] = ' ';
+                continue;
+            } else if (c == '%' && i + 2 < end) {
+                int hi = hex(b[i + 1]);
+                int lo = (hi < 0) ? -1 : hex(b[i + 2]);
+                if (lo >= 0) {
+                    buf[n++] = (byte) ((hi << 4) | lo);
+                    i += 2;
+                    continue;
+                }
+            }
+            buf[n++] = c;
+        }
+        return new String(buf, 0, n, charset);
+    }
+
+
+    /*
+     * Decodes s[start, end). Runs of percent escapes are collected as bytes
+     * and decoded with the charset; other characters are copied as is.
+     */
+    static String decode(CharSequence s, int start, int end, Charset charset) {
+        int i = start;
+        while (i < end && s.charAt(i) != '%' && s.charAt(i) != '+') {
+            i++;
+        }
+        if (i == end) {
+            return s.subSequence(start, end).toString();
+        }
+        StringBuilder sb = new StringBuilder(end - start);
+        sb.append(s, start, i);
+        byte[] pending = null;
+        int n = 0;
+        for (; i < end; i++) {
+            char c = s.charAt(i);
+            if (c == '%' && i + 2 < end) {
+                int hi = hex(s.charAt(i + 1));
+                int lo = (hi < 0) ? -1 : hex(s.charAt(i + 2));
+                if (lo >= 0) {
+                    if (pending == null) {
+                        pending = new byte[(end - i) / 3];
+                    }
+                    pending[n++] = (byte) ((hi << 4) | lo);
+                    i += 2;
+                    continue;
+                }
+            }
+            if (n > 0) {
+                sb.append(new String(pending, 0, n, charset));
+                n = 0;
+            }
+            sb.append(c == '+' ? ' ' : c);
+        }
+        if (n > 0) {
+            sb.append(new String(pending, 0, n, charset));
+        }
+        return sb.toString();
+    }
+
+
+    /*
+     * Parameter backed by ranges of the input, decoded on demand. A single
+     * instance is reused for every parameter of a parse.
+     */
+    static final class RangeParameter implements Parameter {
+
+        private final Charset charset;
+        private CharSequence chars;
+        private byte[] bytes;
+        private int start;
+        private int eq;
+        private int end;
+
+        RangeParameter(Charset charset) {
+            this.charset = charset;
+        }
+
+        /*
+         * eq is the index of the first '=' in [start, end), or -1.
+         */
+        void set(CharSequence s, int start, int eq, int end) {
+            this.chars = s;
+            this.bytes = null;
+            this.start = start;
+            this.eq = eq;
+            this.end = end;
+        }
+
+        void set(byte[] b, int start, int eq, int end) {
+            this.chars = null;
+            this.bytes = b;
+            this.start = start;
+            this.eq = eq;
+            this.end = end;
+        }
+
+        private int nameEnd() {
+            return (eq < 0) ? end : eq;
+        }
+
+        @Override
+        public String getName() {
+            if (bytes != null) {
+                return decode(bytes, start, nameEnd(), charset);
+            }
+            return decode(chars, start, nameEnd(), charset);
+        }
+
+        @Override
+        public String getValue() {
+            if (eq < 0) {
+                return "";
+            }
+            if (bytes != null) {
+                return decode(bytes, eq + 1, end, charset);
+            }
+            return decode(chars, eq + 1, end, charset);
+        }
+
+        @Override
+        public boolean nameEquals(String name) {
+            int nameEnd = nameEnd();
+            int len = nameEnd - start;
+            if (len == name.length()) {
+                boolean plain = true;
+                for (int i = 0; i < len; i++) {
+                    int c = (bytes != null)
+                        ? bytes[start + i] : chars.charAt(start + i);
+                    if (c == '%' || c == '+' || c < 0 || c >= 0x80) {
+                        // needs decoding, compare the slow way
+                        plain = false;
+                        break;
+                    }
+                    if (c != name.charAt(i)) {
+                        return false;
+                    }
+                }
+                if (plain) {
+                    return true;
+                }
+            } else if (len < name.length()) {
+                // decoding only ever shortens the raw form
+                return false;
+            }
+            return getName().equals(name);
+        }
+
+        @Override
+        public String toString() {
+            return getName() + '=' + getValue();
+        }
+    }
+
+
+    /*
+     * Visitor that fills a multimap.
+     */
+    static final class Collector implements Visitor {
+
+        private final Map<String, List<String>> map;
+
+        Collector(Map<String, List<String>> map) {
+            this.map = map;
+        }
+
+        @Override
+        public boolean visit(Parameter parameter) {
+            String name = parameter.getName();
+            List<String> values = map.get(name);
+            if (values == null) {
+                values = new ArrayList<>(1);
+                map.put(name, values);
+            }
+            values.add(parameter.getValue());
+            return true;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2017 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * https://oss.oracle.com/licenses/CDDL+GPL-1.1
+ * or LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package javax.servlet.http;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Override table for HttpServletRequestWrapper / HttpServletResponseWrapper.
+ * Each wrapper reads its own class's mask once, when it is constructed, and
+ * _getDelegate skips inner wrappers whose mask lacks the called method.
+ *
+ * Each flattened method is registered with slot() while the wrapper class
+ * is initialised. For a subclass of the base wrapper the computed value has
+ * bit i set when the class supplies its own implementation of method i;
+ * any other class gets all bits set so that calls are routed to it, which
+ * keeps the ClassCastException a plain ServletRequestWrapper in the middle
+ * of the chain has always caused.
+ */
+final class WrapperDelegation extends ClassValue<Long> {
+
+    private final Class<?> base;
+    private final List<Method> methods = new ArrayList<>();
+    // pairs of (slot, related slot); see alias
+    private final List<int[]> aliases = new ArrayList<>();
+
+    WrapperDelegation(Class<?> base) {
+        this.base = base;
+    }
+
+    int slot(String name, Class<?>... parameterTypes) {
+        if (methods.size() == Long.SIZE) {
+            throw new IllegalStateException("Too many delegated methods");
+        }
+        try {
+            methods.add(base.getMethod(name, parameterTypes));
+        } catch (NoSuchMethodException e) {
+            throw new IllegalArgumentException(e);
+        }
+        return methods.size() - 1;
+    }
+
+    /*
+     * Declares that a class overriding the related method must also be
+     * treated as implementing slot, as for an HttpHeaderName method
+     * whose inherited implementation calls back into the String variant.
+     */
+    int alias(int slot, int related) {
+        aliases.add(new int[] { slot, related });
+        return slot;
+    }
+
+    boolean overrides(Class<?> type, int slot) {
+        return (get(type) & (1L << slot)) != 0;
+    }
+
+    @Override
+    protected Long computeValue(Class<?> type) {
+        if (!base.isAssignableFrom(type)) {
+            return -1L;
+        }
+        try {
+            long mask = 0;
+            for (int i = 0; i < methods.size(); i++) {
+                Method m = methods.get(i);
+                if (type.getMethod(m.getName(), m.getParameterTypes())
+                        .getDeclaringClass() != base) {
+                    mask |= 1L << i;
+                }
+            }
+            for (int[] alias : aliases) {
+                if ((mask & (1L << alias[1])) != 0) {
+                    mask |= 1L << alias[0];
+                }
+            }
+            return mask;
+        } catch (NoSuchMethodException e) {
+            return -1L;
+        }
+    }
+}